@@ -0,0 +1,66 @@
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntToLongFunction;
+
+
+/* Results as compact big-endian records (readable with DataInputStream), one per result:
+
+    'P' long prime, int count, int first, int last, then count longs (the terms)
+    'O' int squares, then one double per square
+    'S' int layout, int dice, int length, then length bytes of UTF-8 (the modal string)
+
+Terms cost a fixed 8 bytes each and are read back without any parsing. */
+
+
+public class BinaryResultSink implements ResultSink{
+
+    static final byte PRIME_SUM = 'P';
+    static final byte ODDS = 'O';
+    static final byte SWEEP = 'S';
+
+    private final ResultWriter out;
+
+
+    BinaryResultSink(ResultWriter out){
+        this.out = out;
+    }
+
+
+    @Override
+    public void primeSum(long prime, int count, int startIndex, int endIndex, IntToLongFunction terms){
+        this.out.writeByte(PRIME_SUM).writeLong(prime).writeInt(count).writeInt(startIndex).writeInt(endIndex);
+        for(int i = 0; i < count; ++i){
+            this.out.writeLong(terms.applyAsLong(startIndex + i));
+        }
+    }
+
+
+    @Override
+    public void odds(MonopolyBoard board, double[] odds){
+        this.out.writeByte(ODDS).writeInt(board.numOfSquares);
+        for(int i = 0; i < board.numOfSquares; ++i){
+            this.out.writeDouble(odds[i]);
+        }
+    }
+
+
+    @Override
+    public void sweep(MonopolySweep.Result result){
+        byte[] modal = result.modalString.getBytes(StandardCharsets.UTF_8);
+        this.out.writeByte(SWEEP).writeInt(result.layout).writeInt(result.diceSides).writeInt(modal.length);
+        for(byte b : modal){
+            this.out.writeByte(b);
+        }
+    }
+
+
+    @Override
+    public void flush(){
+        this.out.flush();
+    }
+
+
+    @Override
+    public void close(){
+        this.out.close();
+    }
+}
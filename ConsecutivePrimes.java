@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 // Drew Boston, 3/3/19
@@ -11,109 +13,219 @@ This problem appears at this link: https://projecteuler.net/problem=50. */
 
 public class ConsecutivePrimes{
     
-    private HashSet<Integer> primes;    //list of all primes up to maxNum
-    private List<Integer> primesList;   //used for quick indexing to check if sums are prime
-    private int maxNum;                 //maximum value (given by user input)
+    private PrimeOracle primes;         //primality checks for sums (sieve lookup up to maxNum)
+    private WheelSieve wheel;           //mod-30 table the search reads its primes from
+    private long maxNum;                //maximum value (given by user input)
+    private int parallelism;            //threads used by the sieve (1 = non-threaded)
+    private PrimeTableCache cache;      //on-disk prime table, reused across runs (null = off)
+    private ConsecutiveSumSearch search;    //search behind the last findConSum() (terms come from it)
+    private PhaseMetrics metrics;       //per-phase time / allocation numbers (DISABLED = off)
+    private ResultSink sink;            //where printResults() writes (console text by default)
+    private SearchCheckpoint checkpoint;    //progress journal for resuming long runs (null = off)
     
     
     //constructor method
-    public ConsecutivePrimes(int n){
-        this.primes = new HashSet<Integer>();
-        this.primesList = new ArrayList<Integer>();
+    public ConsecutivePrimes(long n){
+        this(n, 1);
+    }
+    
+    
+    //same as above, but sieves on the given number of threads
+    public ConsecutivePrimes(long n, int parallelism){
+        this.primes = new PrimeOracle();
         this.maxNum = n;
-        
-        //add 2 to primes list (saves complexity for sieve of eros. later)
-        this.primes.add(2);
-        this.primesList.add(2);
+        this.parallelism = parallelism;
+        this.metrics = PhaseMetrics.DISABLED;
+        this.sink = ResultSink.console(false);
+    }
+    
+    
+    //reuse (and keep up to date) an on-disk prime table instead of always sieving from scratch
+    public void setCache(PrimeTableCache cache){
+        this.cache = cache;
+    }
+    
+    
+    //records populateLists, findPrimes, findConSum and printResults phases (see PhaseMetrics)
+    public void setMetrics(PhaseMetrics metrics){
+        this.metrics = metrics;
+    }
+    
+    
+    //journals the search as it goes, and resumes it from the journal if an earlier run with the
+    //same limit was cut short. The table is sieved again (or read back from the cache, if set)
+    public void setCheckpoint(SearchCheckpoint checkpoint){
+        this.checkpoint = checkpoint;
+    }
+    
+    
+    //sends results somewhere other than the console, or in another format (see ResultSink)
+    public void setSink(ResultSink sink){
+        this.sink = sink;
     }
     
     
     //essentially the driver method
     public void start(){
-        populateLists();
+        populateLists(this.maxNum);
         findConSum();
     }
     
     
-    //prints the answer, number of terms, and the terms themselves to the console
-    public void printResults(int maxPrime, int maxCount, int startIndex, int endIndex){
-        System.out.printf("Answer is: %d\n", maxPrime);
-        System.out.printf("Which equals the sum of the following [%d] consecutive primes: \n", maxCount);
-        for(int i = startIndex; i <= endIndex; ++i){
-            if(i != endIndex)
-                System.out.printf(" %d, ", this.primesList.get(i));
-            else
-                System.out.printf(" %d\n", this.primesList.get(i));
+    //streaming alternative to start(): no sieve table is built. Primes come from a PrimeSource
+    //that sieves ahead on a background thread while the search is already consuming them, and
+    //only as many primes are read as the search needs. Sums are checked with Miller-Rabin.
+    public void startStreaming(){
+        try(PrimeSource source = new PrimeSource(Math.max(this.maxNum, 2), true)){
+            ConsecutiveSum result;
+            try(PhaseMetrics.Phase phase = this.metrics.start("findConSum")){
+                this.search = new ConsecutiveSumSearch(source, new PrimeOracle());
+                result = this.search.find(this.maxNum);
+                phase.items(this.search.size());
+            }
+            printResults(result.getPrime(), result.getCount(), result.getStartIndex(), result.getEndIndex());
         }
     }
     
     
-    //finds largest prime number that is also a sum of consecutive primes
-    //NOTE: possible optimizations - once we find the max length of consecutive primes seen so far,
-    //only consider lengths of a greater size - this would cut down on a lot of duplicate calculation...
+    //prints the answer, number of terms, and the terms themselves to the console (or the sink
+    //set with setSink()). The whole list goes out as a few buffered writes, not one per term
+    public void printResults(long maxPrime, int maxCount, int startIndex, int endIndex){
+        try(PhaseMetrics.Phase phase = this.metrics.start("printResults")){
+            this.sink.primeSum(maxPrime, maxCount, startIndex, endIndex, this.search::prime);
+            this.sink.flush();
+            phase.items(maxCount);
+        }
+    }
+    
     
+    //finds largest prime number that is also a sum of consecutive primes.
+    //tries the longest possible windows first over a long[] prefix-sum array, so the first prime
+    //sum found is the answer and shorter windows are never looked at (see ConsecutiveSumSearch)
     public void findConSum(){
-        int maxPrime = 1;
-        int maxCount = 0;
-        int startIndex = 0;
-        int endIndex = 0;
-        
-        for(int i = 0; i < primesList.size()-1; ++i){
-            int currentSum = this.primesList.get(i);
-            int count = 1;
-            for(int j = i+1; j < primesList.size(); ++j){
-                count++;
-                int nextVal = this.primesList.get(j);
-                currentSum += nextVal;
-                //to avoid int overflow, also cuts down complexity slightly
-                if(currentSum > this.maxNum)
-                    break;
-                if(this.primes.contains(Integer.valueOf(currentSum)) && count > maxCount){
-                    maxPrime = currentSum;
-                    maxCount = count;
-                    startIndex = i;
-                    endIndex = j;
-                }
-            }
+        ConsecutiveSum result;
+        try(PhaseMetrics.Phase phase = this.metrics.start("findConSum")){
+            this.search = newSearch();
+            if(this.checkpoint != null)
+                result = this.checkpoint.search(this.search, this.maxNum);
+            else
+                result = this.search.find(this.maxNum);
+            phase.items(this.search.size());
         }
-        printResults(maxPrime, maxCount, startIndex, endIndex);
+        printResults(result.getPrime(), result.getCount(), result.getStartIndex(), result.getEndIndex());
     }
     
     
-    //non-threaded implementation of the sieve of eratosthenes (slow for large numbers)
-    public void findPrimes(List<Integer> allNums){
-        
-        for(int i = 3; i <= maxNum; i+=2){
-            if (allNums.contains(Integer.valueOf(i))){
-                for(int j = 3 * i; j <= maxNum; j += (2*i)){
-                    allNums.remove(Integer.valueOf(j));
-                }
-            }
+    //batch version of findConSum(): answers every limit in the set with one sieve (up to the
+    //largest limit, or maxNum if that is larger - maxNum itself is left as it is) and one pass
+    //over shared prefix sums. results are returned instead of printed, keyed by limit
+    public SortedMap<Long, ConsecutiveSum> findConSums(SortedSet<Long> limits){
+        SortedMap<Long, ConsecutiveSum> results = new TreeMap<Long, ConsecutiveSum>();
+        if(limits.isEmpty()){
+            return results;
+        }
+        populateLists(Math.max(this.maxNum, limits.last()));
+        long[] sorted = new long[limits.size()];
+        int next = 0;
+        for(long limit : limits){
+            sorted[next++] = limit;
         }
+        ConsecutiveSum[] answers;
+        try(PhaseMetrics.Phase phase = this.metrics.start("findConSums")){
+            answers = newSearch().findAll(sorted);
+            phase.items(sorted.length);
+        }
+        for(int i = 0; i < sorted.length; ++i){
+            results.put(sorted[i], answers[i]);
+        }
+        return results;
+    }
+    
+    
+    //segmented sieve of eratosthenes on a mod-30 wheel (see WheelSieve): only the 8 residues
+    //coprime to 30 are stored, one byte per 30 values, one cache-sized segment at a time, so
+    //memory use is fixed at maxNum/30 bytes and limits can go past the int range. Non-threaded
+    //unless parallelism is > 1, in which case segments are sieved on a ForkJoinPool - output is
+    //identical either way. With a cache set, only the part of the table the cache doesn't already
+    //cover is sieved.
+    //the table is one byte[], so maxNum can't go past WheelSieve.MAX_LIMIT (about 6.4 * 10^10,
+    //short of 10^11) - larger limits throw IllegalArgumentException; startStreaming() has no table
+    //and no such limit
+    public WheelSieve findPrimes(){
+        return findPrimes(this.maxNum);
     }
     
     
-    //setup for sieve of eratosthenes, also populates primes list and hashmap
-    private void populateLists(){
-        List<Integer> allNums = new ArrayList<Integer>();
-        for(int i = 3; i <= maxNum; i+=2){
-            allNums.add(i);
+    //findPrimes() up to limit instead of maxNum
+    private WheelSieve findPrimes(long limit){
+        try(PhaseMetrics.Phase phase = this.metrics.start("findPrimes")){
+            phase.items(limit);
+            if(this.cache != null){
+                return this.cache.load(limit, this.parallelism);
+            }
+            return new WheelSieve(limit, this.parallelism);
         }
-        this.findPrimes(allNums);
-        //populate primes / primesList with all primes
-        for(int i = 0; i < allNums.size(); ++i){
-            this.primes.add(allNums.get(i));
-            this.primesList.add(allNums.get(i));
+    }
+    
+    
+    //runs the sieve up to limit, then points the oracle at it. Membership checks go back to the wheel table,
+    //and the search reads its primes straight off the same table as it goes, so no list of
+    //primes is built and nothing is boxed or duplicated
+    private void populateLists(long limit){
+        try(PhaseMetrics.Phase phase = this.metrics.start("populateLists")){
+            this.wheel = this.findPrimes(limit);
+            this.primes = new PrimeOracle(this.wheel);
+            phase.items(this.wheel.getLimit());
         }
     }
+    
+    
+    //search over the table populateLists() built
+    private ConsecutiveSumSearch newSearch(){
+        return new ConsecutiveSumSearch(this.wheel.iterator(), this.primes);
+    }
         
     
-    //testing method, gets maximum integer from console / user input
-    public static void main(String[] args){
+    //testing method, gets maximum integer from console / user input. Past WheelSieve.MAX_LIMIT
+    //(about 6.4 * 10^10, so 10^11 is out of reach of the table) it says so and streams instead.
+    //optional arguments: number of sieve threads (defaults to 1), prime cache file, "stream" to
+    //use startStreaming(). The cache (up to about 2GB on disk) is only kept when asked for: the
+    //second argument, or -Dcache=file if it is missing; "-" for no cache, e.g. before "stream".
+    //run with -Dmetrics=file.json (or -Dmetrics=- for the console) to get per-phase metrics, and
+    //with -Dresults=file (.csv, .bin or text, see ResultSink.open()) to write the answer to a file.
+    //-Dcheckpoint=file journals the search there; rerun with the same file to resume after a restart.
+    //streaming runs have nothing to journal: the checkpoint file is then left alone (with a warning)
+    public static void main(String[] args) throws IOException{
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        String cacheFile = args.length > 1 ? args[1] : System.getProperty("cache");
+        boolean streaming = args.length > 2 && args[2].equals("stream");
         Scanner sc = new Scanner(System.in);
         System.out.printf("Enter the maximum Integer: ");
-        int n = sc.nextInt();
-        ConsecutivePrimes test = new ConsecutivePrimes(n);
-        test.start();
+        long n = sc.nextLong();
+        if(!streaming && n > WheelSieve.MAX_LIMIT){
+            System.err.printf("%d is past the largest prime table (WheelSieve.MAX_LIMIT = %d, about 6.4 * 10^10), streaming the primes instead.\n",
+                    n, WheelSieve.MAX_LIMIT);
+            streaming = true;
+        }
+        ConsecutivePrimes test = new ConsecutivePrimes(n, threads);
+        if(cacheFile != null && !cacheFile.equals("-"))
+            test.setCache(new PrimeTableCache(Paths.get(cacheFile)));
+        PhaseMetrics metrics = PhaseMetrics.fromSystemProperty();
+        test.setMetrics(metrics);
+        String checkpointFile = System.getProperty("checkpoint");
+        if(checkpointFile != null && streaming)
+            System.err.printf("Streaming runs are not checkpointed, %s is neither used nor removed.\n", checkpointFile);
+        SearchCheckpoint checkpoint = checkpointFile == null || streaming ? null : new SearchCheckpoint(Paths.get(checkpointFile));
+        test.setCheckpoint(checkpoint);
+        try(ResultSink sink = ResultSink.open(System.getProperty("results"))){
+            test.setSink(sink);
+            if(streaming)
+                test.startStreaming();
+            else
+                test.start();
+        }
+        if(checkpoint != null)
+            checkpoint.delete();    //the run is done, nothing left to resume
+        metrics.writeJsonIfRequested();
     }
 }
@@ -0,0 +1,45 @@
+/* Result of a longest-consecutive-prime-sum search: the prime that is the sum, the number of
+terms, and the (inclusive) indices of the first and last term in the prime index. */
+
+
+public class ConsecutiveSum{
+
+    private final long prime;       //the sum itself (1 if no window of 2+ terms sums to a prime)
+    private final int count;        //number of consecutive primes in the sum
+    private final int startIndex;   //index of the first term (0 = the prime 2)
+    private final int endIndex;     //index of the last term, inclusive
+
+
+    public ConsecutiveSum(long prime, int count, int startIndex, int endIndex){
+        this.prime = prime;
+        this.count = count;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+    }
+
+
+    public long getPrime(){
+        return this.prime;
+    }
+
+
+    public int getCount(){
+        return this.count;
+    }
+
+
+    public int getStartIndex(){
+        return this.startIndex;
+    }
+
+
+    public int getEndIndex(){
+        return this.endIndex;
+    }
+
+
+    @Override
+    public String toString(){
+        return String.format("%d = [%d] terms, index %d..%d", this.prime, this.count, this.startIndex, this.endIndex);
+    }
+}
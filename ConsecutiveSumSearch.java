@@ -0,0 +1,200 @@
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.LongPredicate;
+
+
+/* Longest-window-first search for the prime that is the sum of the most consecutive primes.
+
+Sums are read off a long[] prefix-sum array (prefix[i] = sum of the first i primes), so any window
+sum is one subtraction and can never overflow. Window lengths are tried from longest to shortest,
+which means the first prime sum found is the answer and every shorter window is skipped.
+
+For a given length, the window starting at 2 has the smallest sum of any window of that length, so
+the longest length worth trying is the largest one whose first window still fits under the limit.
+Windows of one length only get bigger as the start index moves right, so the scan for a length
+stops at the first start whose sum passes the limit. Parity rules out most of the rest: a window
+that skips 2 is a sum of odd primes, so it can only be odd (and prime) when its length is odd, and
+a window that includes 2 can only be odd when its length is even.
+
+Many limits can be answered in one pass (findAll). Limits are taken in increasing order, and the
+answer for a smaller limit is still valid for a larger one, so each limit only has to look at
+lengths longer than the best found so far. For every length the search also remembers how far its
+start index has already been scanned: those windows were either not prime or past an earlier
+limit, and windows only grow to the right, so the next limit picks up where the last one stopped.
+All limits together cost about as much as a single search at the largest one.
+
+The primes are pulled lazily from their source (the WheelSieve iterator, or a streaming
+PrimeSource): the prefix array only grows as far as the search actually reads, which for a limit N is far fewer primes than
+all of those up to N.
+
+A single-limit search can report where it is (Progress) and be resumed from there later: every
+length longer than the one it stopped at has already been ruled out, and so has every start
+before the one it stopped at. SearchCheckpoint uses this to survive restarts. */
+
+
+public class ConsecutiveSumSearch{
+
+    //windows scanned within one length between two Progress reports
+    private static final int PROGRESS_WINDOWS = 1 << 20;
+
+    private long[] prefix;                      //prefix[i] = sum of the first i primes
+    private int loaded;                         //number of primes in prefix so far
+    private final PrimitiveIterator.OfLong source;  //where further primes come from
+    private final LongPredicate isPrime;        //primality test for window sums
+
+
+    //source must produce consecutive primes starting from 2, and is only read as far as the
+    //search needs
+    public ConsecutiveSumSearch(PrimitiveIterator.OfLong source, LongPredicate isPrime){
+        this.prefix = new long[1024];
+        this.loaded = 0;
+        this.source = source;
+        this.isPrime = isPrime;
+    }
+
+
+    //number of primes in the index so far
+    public int size(){
+        return this.loaded;
+    }
+
+
+    //the prime at index (0 = the prime 2); it must already be loaded
+    public long prime(int index){
+        return this.prefix[index + 1] - this.prefix[index];
+    }
+
+
+    //sum of primes [startIndex, endIndex], both inclusive
+    public long windowSum(int startIndex, int endIndex){
+        return this.prefix[endIndex + 1] - this.prefix[startIndex];
+    }
+
+
+    //true if at least count primes are (or could be pulled into) the index. They are pulled in,
+    //so prime() and windowSum() can read that far afterwards
+    public boolean has(int count){
+        if(count <= this.loaded){
+            return true;
+        }
+        while(this.loaded < count && this.source.hasNext()){
+            if(this.loaded + 1 == this.prefix.length){
+                this.prefix = Arrays.copyOf(this.prefix, this.prefix.length * 2);
+            }
+            this.prefix[this.loaded + 1] = this.prefix[this.loaded] + this.source.nextLong();
+            this.loaded++;
+        }
+        return count <= this.loaded;
+    }
+
+
+    //finds the prime <= limit that is the sum of the most consecutive primes (2 terms or more).
+    //ties go to the window with the smallest start index. If there is no such prime, the result
+    //has prime 1 and count 0, as in the original exhaustive search.
+    public ConsecutiveSum find(long limit){
+        return findAll(new long[]{limit})[0];
+    }
+
+
+    //find() that can pick up where an interrupted one stopped: lengths longer than resumeLength
+    //have been ruled out, and so have windows of resumeLength that start before resumeStart
+    //(resumeLength 0 = start from scratch). progress hears where the search is before every
+    //length and every PROGRESS_WINDOWS windows within one
+    public ConsecutiveSum find(long limit, int resumeLength, int resumeStart, Progress progress){
+        int longest = 0;
+        while(has(longest + 1) && this.prefix[longest + 1] <= limit){
+            longest++;
+        }
+        int[] cursor = new int[longest + 1];
+        int first = longest;
+        if(resumeLength >= 2 && resumeLength <= longest){
+            first = resumeLength;
+            cursor[first] = resumeStart;
+        }
+        for(int len = first; len >= 2; --len){
+            progress.at(len, cursor[len], this.prefix[cursor[len]]);
+            ConsecutiveSum found = scanLength(len, limit, cursor, progress);
+            if(found != null){
+                return found;
+            }
+        }
+        return new ConsecutiveSum(1, 0, 0, 0);
+    }
+
+
+    //answers find() for every limit in one pass. limits must be sorted in increasing order, and
+    //results[i] is the answer for limits[i]
+    public ConsecutiveSum[] findAll(long[] limits){
+        for(int i = 1; i < limits.length; ++i){
+            if(limits[i] < limits[i - 1]){
+                throw new IllegalArgumentException("limits must be sorted in increasing order");
+            }
+        }
+        ConsecutiveSum[] results = new ConsecutiveSum[limits.length];
+        ConsecutiveSum best = new ConsecutiveSum(1, 0, 0, 0);
+        //no window of any limit can be longer than the longest one under the largest limit
+        int longestOverall = 0;
+        long largest = limits.length == 0 ? 0 : limits[limits.length - 1];
+        while(has(longestOverall + 1) && this.prefix[longestOverall + 1] <= largest){
+            longestOverall++;
+        }
+        int[] cursor = new int[longestOverall + 1];     //cursor[len] = first start not yet scanned
+        int longest = 0;
+        for(int k = 0; k < limits.length; ++k){
+            long limit = limits[k];
+            while(has(longest + 1) && this.prefix[longest + 1] <= limit){
+                longest++;
+            }
+            for(int len = longest; len > best.getCount() && len >= 2; --len){
+                ConsecutiveSum found = scanLength(len, limit, cursor, null);
+                if(found != null){
+                    best = found;
+                    break;
+                }
+            }
+            results[k] = best;
+        }
+        return results;
+    }
+
+
+    //scans windows of one length from cursor[len] onward, up to limit. Returns the first prime
+    //sum (or null), leaving cursor[len] at the first start index that hasn't been ruled out.
+    //progress (if not null) is told the position every PROGRESS_WINDOWS windows
+    private ConsecutiveSum scanLength(int len, long limit, int[] cursor, Progress progress){
+        if((len & 1) == 0){
+            //only the window that starts at 2 can have an odd sum, and it always fits (len <= longest)
+            if(cursor[len] == 0){
+                cursor[len] = 1;
+                if(this.isPrime.test(this.prefix[len])){
+                    return new ConsecutiveSum(this.prefix[len], len, 0, len - 1);
+                }
+            }
+            return null;
+        }
+        int start = Math.max(cursor[len], 1);
+        for(; has(start + len); ++start){
+            long sum = this.prefix[start + len] - this.prefix[start];
+            if(sum > limit){
+                break;
+            }
+            if(this.isPrime.test(sum)){
+                cursor[len] = start;
+                return new ConsecutiveSum(sum, len, start, start + len - 1);
+            }
+            if(progress != null && (start & (PROGRESS_WINDOWS - 1)) == 0){
+                progress.at(len, start, this.prefix[start]);
+            }
+        }
+        cursor[len] = start;
+        return null;
+    }
+
+
+    //receives the position of a resumable find()
+    public interface Progress{
+        //every window longer than length, and every window of length starting before start, has
+        //been ruled out. prefixSum is the sum of the primes before start
+        void at(int length, int start, long prefixSum);
+    }
+}
@@ -0,0 +1,337 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/* Convergence tracking and early stopping for estimates of the odds vector.
+
+Works for both kinds of estimate in this project:
+
+    iterative (MonopolyMarkov.solve / solveSparse): call iterate() after every iteration. The L1 and
+    L-infinity change from the previous iterate are recorded along with the solver's residual. The
+    run has converged once the residual is below tolerance, or - if topK > 0 - once the top-k
+    ranking has stopped changing and looks unlikely to change again. That second test is a
+    heuristic, not a guarantee: it takes the largest step-to-step contraction ratio of the last
+    RATIO_STEPS iterations (all of which must be below 1) as the rate of the whole remaining run,
+    and asks that the distance left under that rate be smaller than half of every gap in the
+    ranking. A chain whose contraction slows down later can still reorder after it.
+
+    sampling (MonopolySimulator): every worker histogram is one batch. Call addBatch() for each
+    and endRound() after each round. Rolls in a game are correlated, so per-square confidence
+    intervals come from the spread of the batch means rather than from a binomial formula. The run
+    has converged once every interval is narrower than tolerance, or - if topK > 0 - once the
+    intervals of consecutive squares in the top-k ranking (and the one after it) no longer overlap
+    at the requested confidence.
+
+The trace (see trace()) holds one Step per iteration or round, but only the latest traceLimit of
+them - none at all for the tolerance-only monitor the plain solvers use, so a long run costs no
+allocation per iteration. */
+
+
+class ConvergenceMonitor {
+
+    //batches needed before a sampling interval is trusted at all
+    static final int MIN_BATCHES = 8;
+
+    //consecutive contracting iterations the ranking heuristic needs before it trusts the rate
+    static final int RATIO_STEPS = 4;
+
+    //steps kept in the trace by default (the most recent ones)
+    static final int TRACE_LIMIT = 1024;
+
+    private static final int[] NO_RANKING = new int[0];
+
+    //one recorded iteration / round
+    static final class Step {
+        final long progress;        //iteration number, or rolls sampled so far
+        final double l1Change;      //L1 change from the previous estimate (infinite at first)
+        final double maxChange;     //L-infinity change from the previous estimate
+        final double residual;      //solver residual (iterative), or widest half-interval (sampling)
+        final int[] ranking;        //top-k squares of this estimate, most likely first
+        final boolean rankingStable;
+
+        Step(long progress, double l1Change, double maxChange, double residual, int[] ranking, boolean rankingStable){
+            this.progress = progress;
+            this.l1Change = l1Change;
+            this.maxChange = maxChange;
+            this.residual = residual;
+            this.ranking = ranking;
+            this.rankingStable = rankingStable;
+        }
+    }
+
+    private final double tolerance;
+    private final int topK;             //0 = don't stop early on the ranking
+    private final double z;             //two-sided normal quantile for the confidence level
+    private final int traceLimit;       //steps kept in the trace (0 = no trace)
+    private final ArrayDeque<Step> trace;
+    private double[] previous;          //previous estimate (null before the first)
+    private int[] previousTop;
+    private double previousMaxChange;
+    private final double[] ratios;      //contraction ratios of the last RATIO_STEPS iterations
+    private int contracting;            //consecutive iterations with a ratio below 1
+    private long iterations;
+    private long steps;                 //iterations / rounds recorded, kept in the trace or not
+    private boolean converged;
+
+    //sampling state: per-square sums of batch means and of their squares
+    private double[] batchSum;
+    private double[] batchSumSquares;
+    private int batches;
+    private long samples;
+    private double[] halfWidth;         //per-square confidence half-interval after the last round
+
+
+    //tolerance: residual (iterative) or interval half-width (sampling) to stop at.
+    //topK / confidence: stop as soon as the top-k ranking is settled (at this confidence, when
+    //sampling). traceLimit: how many of the latest steps trace() keeps
+    ConvergenceMonitor(double tolerance, int topK, double confidence, int traceLimit){
+        if(!(confidence > 0.0 && confidence < 1.0)){
+            throw new IllegalArgumentException("confidence must be in (0, 1): " + confidence);
+        }
+        if(traceLimit < 0){
+            throw new IllegalArgumentException("traceLimit must not be negative: " + traceLimit);
+        }
+        this.tolerance = tolerance;
+        this.topK = topK;
+        this.z = normalQuantile(1.0 - (1.0 - confidence) / 2);
+        this.traceLimit = traceLimit;
+        this.trace = new ArrayDeque<Step>(Math.min(traceLimit, 64));
+        this.previousMaxChange = Double.POSITIVE_INFINITY;
+        this.ratios = new double[RATIO_STEPS];
+    }
+
+
+    //same as above, keeping the latest TRACE_LIMIT steps
+    ConvergenceMonitor(double tolerance, int topK, double confidence){
+        this(tolerance, topK, confidence, TRACE_LIMIT);
+    }
+
+
+    //tolerance-only monitor (no early stopping on the ranking, no trace)
+    ConvergenceMonitor(double tolerance){
+        this(tolerance, 0, 0.95, 0);
+    }
+
+
+    //records one iteration of an iterative solver. residual is the solver's own measure (pass
+    //Double.NaN to use the L1 change). Returns true once the estimate has converged
+    boolean iterate(double[] odds, double residual){
+        this.iterations++;
+        double l1 = Double.POSITIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+        if(this.previous != null){
+            l1 = 0.0;
+            max = 0.0;
+            for(int i = 0; i < odds.length; ++i){
+                double d = Math.abs(odds[i] - this.previous[i]);
+                l1 += d;
+                max = Math.max(max, d);
+            }
+        }
+        if(Double.isNaN(residual)){
+            residual = l1;
+        }
+        boolean stable = false;
+        int[] top = NO_RANKING;
+        if(this.topK > 0){
+            top = Monopoly.topSquares(odds, this.topK + 1);
+            double ratio = max / this.previousMaxChange;
+            if(!Double.isInfinite(this.previousMaxChange) && ratio < 1.0){
+                this.ratios[(int)(this.iterations % RATIO_STEPS)] = ratio;
+                this.contracting = Math.min(this.contracting + 1, RATIO_STEPS);
+            }
+            else{
+                this.contracting = 0;
+            }
+            if(this.contracting >= RATIO_STEPS && sameRanking(top)){
+                //if the slowest recent rate held from here on, the remaining steps would add up
+                //to at most max*slowest/(1-slowest)
+                double slowest = 0.0;
+                for(double r : this.ratios){
+                    slowest = Math.max(slowest, r);
+                }
+                double remaining = max * slowest / (1.0 - slowest);
+                stable = 2 * remaining < smallestGap(odds, top);
+            }
+        }
+        this.converged = residual <= this.tolerance || stable;
+        record(this.iterations, l1, max, residual, top, stable);
+        remember(odds, top);
+        this.previousMaxChange = max;
+        return this.converged;
+    }
+
+
+    //adds one batch of sampled visit counts (turns rolls in total) to the current round
+    void addBatch(long[] visits, long turns){
+        if(this.batchSum == null){
+            this.batchSum = new double[visits.length];
+            this.batchSumSquares = new double[visits.length];
+            this.halfWidth = new double[visits.length];
+        }
+        for(int i = 0; i < visits.length; ++i){
+            double p = visits[i] / (double)turns;
+            this.batchSum[i] += p;
+            this.batchSumSquares[i] += p * p;
+        }
+        this.batches++;
+        this.samples += turns;
+    }
+
+
+    //closes a sampling round: updates the estimate and intervals, returns true once converged
+    boolean endRound(){
+        int n = this.batchSum.length;
+        double[] mean = new double[n];
+        double widest = 0.0;
+        for(int i = 0; i < n; ++i){
+            mean[i] = this.batchSum[i] / this.batches;
+            if(this.batches > 1){
+                double variance = Math.max(0.0, (this.batchSumSquares[i] - this.batches * mean[i] * mean[i]) / (this.batches - 1));
+                this.halfWidth[i] = this.z * Math.sqrt(variance / this.batches);
+            }
+            else{
+                this.halfWidth[i] = Double.POSITIVE_INFINITY;
+            }
+            widest = Math.max(widest, this.halfWidth[i]);
+        }
+        double l1 = Double.POSITIVE_INFINITY;
+        double max = Double.POSITIVE_INFINITY;
+        if(this.previous != null){
+            l1 = 0.0;
+            max = 0.0;
+            for(int i = 0; i < n; ++i){
+                double d = Math.abs(mean[i] - this.previous[i]);
+                l1 += d;
+                max = Math.max(max, d);
+            }
+        }
+        int[] top = this.topK > 0 ? Monopoly.topSquares(mean, this.topK + 1) : NO_RANKING;
+        boolean trusted = this.batches >= MIN_BATCHES;
+        boolean stable = trusted && this.topK > 0 && separated(mean, top);
+        this.converged = (trusted && widest <= this.tolerance) || stable;
+        record(this.samples, l1, max, widest, top, stable);
+        remember(mean, top);
+        return this.converged;
+    }
+
+
+    //true if the last iterate() / endRound() reported convergence
+    boolean converged(){
+        return this.converged;
+    }
+
+
+    //the latest estimate (null before the first iteration / round)
+    double[] estimate(){
+        return this.previous == null ? null : this.previous.clone();
+    }
+
+
+    //per-square confidence half-intervals after the last sampling round (null if not sampling)
+    double[] halfWidths(){
+        return this.halfWidth == null ? null : this.halfWidth.clone();
+    }
+
+
+    //the latest steps recorded (at most traceLimit of them), oldest first
+    List<Step> trace(){
+        return Collections.unmodifiableList(new ArrayList<Step>(this.trace));
+    }
+
+
+    //the latest step, or null if there is none (or no trace is kept)
+    Step last(){
+        return this.trace.peekLast();
+    }
+
+
+    //number of iterations / rounds recorded so far, including those dropped from the trace
+    long steps(){
+        return this.steps;
+    }
+
+
+    //appends a step to the trace, dropping the oldest one past traceLimit
+    private void record(long progress, double l1, double max, double residual, int[] top, boolean stable){
+        this.steps++;
+        if(this.traceLimit == 0){
+            return;
+        }
+        if(this.trace.size() == this.traceLimit){
+            this.trace.removeFirst();
+        }
+        this.trace.addLast(new Step(progress, l1, max, residual, Arrays.copyOf(top, Math.min(top.length, this.topK)), stable));
+    }
+
+
+    //true if the top-k part of top matches the previous ranking
+    private boolean sameRanking(int[] top){
+        if(this.previousTop == null){
+            return false;
+        }
+        for(int i = 0; i < Math.min(this.topK, top.length); ++i){
+            if(top[i] != this.previousTop[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    //smallest difference between consecutive squares of the ranking (k+1 squares)
+    private static double smallestGap(double[] odds, int[] top){
+        double gap = Double.POSITIVE_INFINITY;
+        for(int i = 0; i + 1 < top.length; ++i){
+            gap = Math.min(gap, odds[top[i]] - odds[top[i + 1]]);
+        }
+        return gap;
+    }
+
+
+    //true if no two consecutive squares of the ranking have overlapping intervals
+    private boolean separated(double[] mean, int[] top){
+        for(int i = 0; i + 1 < top.length; ++i){
+            int a = top[i];
+            int b = top[i + 1];
+            if(mean[a] - this.halfWidth[a] <= mean[b] + this.halfWidth[b]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private void remember(double[] estimate, int[] top){
+        if(this.previous == null || this.previous.length != estimate.length){
+            this.previous = new double[estimate.length];
+        }
+        System.arraycopy(estimate, 0, this.previous, 0, estimate.length);
+        this.previousTop = top;
+    }
+
+
+    //inverse of the standard normal CDF (Acklam's rational approximation, relative error < 1.2e-9)
+    static double normalQuantile(double p){
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+        double low = 0.02425;
+        if(p < low){
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if(p > 1 - low){
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.function.IntToLongFunction;
+
+
+/* Results as CSV, for spreadsheets and scripts. Every result starts with its own header line:
+
+    sum,terms,first,last        then one line with the answer, then "term" and one term per line
+    square,probability          then one line per square (full double precision)
+    layout,dice,modal           once, before the first sweep result, then one line per result */
+
+
+public class CsvResultSink implements ResultSink{
+
+    private final ResultWriter out;
+    private boolean sweepHeader;        //true once the sweep header is written
+
+
+    CsvResultSink(ResultWriter out){
+        this.out = out;
+    }
+
+
+    @Override
+    public void primeSum(long prime, int count, int startIndex, int endIndex, IntToLongFunction terms){
+        this.out.append("sum,terms,first,last\n");
+        this.out.append(prime).append(',').append(count).append(',').append(startIndex).append(',').append(endIndex).append('\n');
+        this.out.append("term\n");
+        for(int i = 0; i < count; ++i){
+            this.out.append(terms.applyAsLong(startIndex + i)).append('\n');
+        }
+    }
+
+
+    @Override
+    public void odds(MonopolyBoard board, double[] odds){
+        this.out.append("square,probability\n");
+        for(int i = 0; i < board.numOfSquares; ++i){
+            this.out.append(board.label(i)).append(',').append(odds[i]).append('\n');
+        }
+    }
+
+
+    @Override
+    public void sweep(MonopolySweep.Result result){
+        if(!this.sweepHeader){
+            this.out.append("layout,dice,modal\n");
+            this.sweepHeader = true;
+        }
+        this.out.append(result.layout).append(',').append(result.diceSides).append(',').append(result.modalString).append('\n');
+    }
+
+
+    @Override
+    public void flush(){
+        this.out.flush();
+    }
+
+
+    @Override
+    public void close(){
+        this.out.close();
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/* Distribution of the roll of N dice with K sides each: the probability of every total, and of
+every total rolled as "doubles" (all dice showing the same face).
+
+The total distribution is the single-die distribution convolved with itself N times, built by
+repeated squaring (log2 N convolutions). Small convolutions are done directly; once both sides are
+longer than FFT_THRESHOLD the O(n log n) FFT path is used instead (e.g. for 5d100).
+
+Distributions are immutable and memoized in a small LRU cache keyed by (dice, sides), so sweeps
+and repeated solves never recompute them. Use of() rather than building them directly. */
+
+
+final class DiceDistribution {
+
+    //convolutions where both inputs are longer than this go through the FFT
+    static final int FFT_THRESHOLD = 64;
+
+    //most distributions kept in the cache at once
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<Long, DiceDistribution> CACHE = new LinkedHashMap<Long, DiceDistribution>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, DiceDistribution> eldest){
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    final int dice;
+    final int sides;
+    final double[] total;       //total[s] = P(roll totals s), for s in [0, dice * sides]
+    final double[] doubles;     //doubles[s] = P(roll totals s and every die shows the same face)
+    final double doublesProb;   //P(doubles) - sides^(1 - dice), or 0 with a single die
+
+
+    private DiceDistribution(int dice, int sides){
+        this.dice = dice;
+        this.sides = sides;
+        double[] die = new double[sides + 1];
+        for(int face = 1; face <= sides; ++face){
+            die[face] = 1.0 / sides;
+        }
+        this.total = power(die, dice);
+        this.doubles = new double[dice * sides + 1];
+        double perDoubles = dice < 2 ? 0.0 : Math.pow(1.0 / sides, dice);
+        for(int face = 1; face <= sides; ++face){
+            this.doubles[dice * face] = perDoubles;
+        }
+        this.doublesProb = perDoubles * sides;
+    }
+
+
+    //the (cached) distribution for dice dice of sides sides each
+    static DiceDistribution of(int dice, int sides){
+        if(dice < 1 || sides < 1){
+            throw new IllegalArgumentException("need at least one die with at least one side: " + dice + "d" + sides);
+        }
+        Long key = ((long)dice << 32) | sides;
+        synchronized(CACHE){
+            DiceDistribution cached = CACHE.get(key);
+            if(cached != null){
+                return cached;
+            }
+        }
+        //built outside the lock; if two threads race, both results are identical
+        DiceDistribution built = new DiceDistribution(dice, sides);
+        synchronized(CACHE){
+            DiceDistribution cached = CACHE.putIfAbsent(key, built);
+            return cached != null ? cached : built;
+        }
+    }
+
+
+    //largest possible total
+    int maxTotal(){
+        return this.dice * this.sides;
+    }
+
+
+    //P(total = s and not doubles)
+    double nonDoubles(int s){
+        return this.total[s] - this.doubles[s];
+    }
+
+
+    //base convolved with itself n times, by repeated squaring
+    private static double[] power(double[] base, int n){
+        double[] result = {1.0};
+        double[] square = base;
+        while(n > 0){
+            if((n & 1) != 0){
+                result = convolve(result, square);
+            }
+            n >>>= 1;
+            if(n > 0){
+                square = convolve(square, square);
+            }
+        }
+        return result;
+    }
+
+
+    //convolution of a and b (length a.length + b.length - 1)
+    static double[] convolve(double[] a, double[] b){
+        if(Math.min(a.length, b.length) > FFT_THRESHOLD){
+            return convolveFft(a, b);
+        }
+        double[] result = new double[a.length + b.length - 1];
+        for(int i = 0; i < a.length; ++i){
+            if(a[i] == 0.0){
+                continue;
+            }
+            for(int j = 0; j < b.length; ++j){
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+
+    //convolution through a radix-2 complex FFT, O(n log n). Rounding can leave values a hair
+    //below zero where the exact answer is 0; those are clamped
+    static double[] convolveFft(double[] a, double[] b){
+        int length = a.length + b.length - 1;
+        int n = Integer.highestOneBit(Math.max(length - 1, 1)) << 1;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        //pack a into the real part and b into the imaginary part, then split the spectra
+        System.arraycopy(a, 0, re, 0, a.length);
+        System.arraycopy(b, 0, im, 0, b.length);
+        fft(re, im, false);
+        double[] prodRe = new double[n];
+        double[] prodIm = new double[n];
+        for(int k = 0; k < n; ++k){
+            int m = (n - k) & (n - 1);
+            //A[k] = (Z[k] + conj(Z[n-k])) / 2, B[k] = (Z[k] - conj(Z[n-k])) / 2i
+            double aRe = (re[k] + re[m]) / 2;
+            double aIm = (im[k] - im[m]) / 2;
+            double bRe = (im[k] + im[m]) / 2;
+            double bIm = (re[m] - re[k]) / 2;
+            prodRe[k] = aRe * bRe - aIm * bIm;
+            prodIm[k] = aRe * bIm + aIm * bRe;
+        }
+        fft(prodRe, prodIm, true);
+        double[] result = new double[length];
+        for(int i = 0; i < length; ++i){
+            result[i] = Math.max(0.0, prodRe[i] / n);
+        }
+        return result;
+    }
+
+
+    //in-place iterative radix-2 FFT (unscaled; the inverse leaves a factor of n to divide out)
+    private static void fft(double[] re, double[] im, boolean inverse){
+        int n = re.length;
+        for(int i = 1, j = 0; i < n; ++i){
+            int bit = n >>> 1;
+            for(; (j & bit) != 0; bit >>>= 1){
+                j ^= bit;
+            }
+            j ^= bit;
+            if(i < j){
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for(int len = 2; len <= n; len <<= 1){
+            double angle = 2 * Math.PI / len * (inverse ? 1 : -1);
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for(int i = 0; i < n; i += len){
+                double curRe = 1.0;
+                double curIm = 0.0;
+                for(int k = 0; k < len / 2; ++k){
+                    int p = i + k;
+                    int q = p + len / 2;
+                    double tRe = re[q] * curRe - im[q] * curIm;
+                    double tIm = re[q] * curIm + im[q] * curRe;
+                    re[q] = re[p] - tRe;
+                    im[q] = im[p] - tIm;
+                    re[p] += tRe;
+                    im[p] += tIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+}
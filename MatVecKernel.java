@@ -0,0 +1,108 @@
+/* Dense matrix-vector kernels for MonopolyMarkov's power iteration.
+
+multiply() is y = M * x for a row-major n x n matrix, one dot product per row. multiplyBatch()
+advances batch independent chains of the same size in one pass: their matrices are interleaved
+element by element (matrices[(i * n + j) * batch + k] is row i, column j of chain k) and so are
+the vectors (x[j * batch + k]), so every row of every chain is read once per pass, and the
+innermost loop runs across chains over contiguous memory - no horizontal sums at all.
+
+scalar() is plain Java. best() is the SIMD kernel (VectorMatVec, on jdk.incubator.vector) when
+that class is on the class path and the JVM was started with --add-modules jdk.incubator.vector,
+and scalar() otherwise. -Dsimd=false forces scalar(). Both agree to well within 1e-12: the only
+difference is the order (and fusing) of the additions within one dot product. */
+
+
+interface MatVecKernel {
+
+    //y[i] = sum over j of matrix[i * n + j] * x[j], for i in [0, n)
+    void multiply(double[] matrix, double[] x, double[] y, int n);
+
+    //multiply() for batch interleaved chains (see above)
+    void multiplyBatch(double[] matrices, double[] x, double[] y, int n, int batch);
+
+    //chains one pass of multiplyBatch() handles side by side; batches that are a multiple of it
+    //run fastest
+    int lanes();
+
+    //short name for reports ("scalar" or "vector")
+    String name();
+
+
+    static MatVecKernel scalar(){
+        return Scalar.INSTANCE;
+    }
+
+
+    //the fastest kernel this JVM can run, picked once
+    static MatVecKernel best(){
+        return Best.INSTANCE;
+    }
+
+
+    //plain loops. multiplyBatch() adds up every chain in the same order as multiply(), so a
+    //batched solve gives bit-for-bit the same odds as solving each chain on its own
+    final class Scalar implements MatVecKernel {
+
+        static final Scalar INSTANCE = new Scalar();
+
+        @Override
+        public void multiply(double[] matrix, double[] x, double[] y, int n){
+            for(int i = 0; i < n; ++i){
+                double sum = 0.0;
+                int row = i * n;
+                for(int j = 0; j < n; ++j){
+                    sum += matrix[row + j] * x[j];
+                }
+                y[i] = sum;
+            }
+        }
+
+        @Override
+        public void multiplyBatch(double[] matrices, double[] x, double[] y, int n, int batch){
+            for(int i = 0; i < n; ++i){
+                int out = i * batch;
+                for(int k = 0; k < batch; ++k){
+                    y[out + k] = 0.0;
+                }
+                int row = i * n * batch;
+                for(int j = 0; j < n; ++j){
+                    int element = row + j * batch;
+                    int in = j * batch;
+                    for(int k = 0; k < batch; ++k){
+                        y[out + k] += matrices[element + k] * x[in + k];
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int lanes(){
+            return 1;
+        }
+
+        @Override
+        public String name(){
+            return "scalar";
+        }
+    }
+
+
+    //lazy holder for best(): the vector kernel is only looked up (and its module linked) once
+    final class Best {
+
+        static final MatVecKernel INSTANCE = load();
+
+        private static MatVecKernel load(){
+            if(!Boolean.parseBoolean(System.getProperty("simd", "true"))){
+                return scalar();
+            }
+            try{
+                return (MatVecKernel)Class.forName("VectorMatVec").getDeclaredConstructor().newInstance();
+            }
+            catch(ReflectiveOperationException | LinkageError e){
+                //not compiled in, or jdk.incubator.vector isn't in the boot layer
+                return scalar();
+            }
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.*;
 
 
@@ -30,33 +31,50 @@ TODO:
     
     Easier solution may be just to simulate a game with a significant enough number of rolls;
     eventually, probabilities would converge to actual values... 
+    
+    -- done: driverMarkov() solves the actual markov chain (see MonopolyMarkov). driver() still
+       uses the one-pass adjustments below. --
 */
 
 
 class Monopoly {
     
-    List<String> chanceSquares;     //chance squares (ch)
-    List<String> chestSquares;      //community chest squares (cc)
-    List<String> rrSquares;         //railroads 
-    List<String> utSquares;         //utilities
-    Map<String, Double> odds;       //probability of landing on a given space
+    MonopolyBoard board;            //square layout and card destination tables (see initBoard())
+    double[] odds;                  //probability of landing on a given space, indexed by square
     double odds3Doubles;            //odds of rolling three doubles in a row = straight to jail
     int diceSides;                  //provided by user input
-    int numOfSquares;               //most boards have 40 spaces, can be adjusted in initBoard()
-    int numOfCards;                 //number of chance and comm. chest cards (identical, typ. = 16)
-    String g2J;                     //go to jail space
-    String jail;
-    String go;                  
+    int numOfDice;                  //dice rolled per turn (2 in the standard game)
+    PhaseMetrics metrics;           //per-phase time / allocation numbers (DISABLED = off)
+    ResultSink sink;                //where printOdds() and driverSweep() write (console by default)
     
     
     //constructor just initializes class variables 
     public Monopoly(int diceSides){
+        this(2, diceSides);
+    }
+    
+    
+    //same as above, for any number of dice (doubles = every die showing the same face)
+    public Monopoly(int numOfDice, int diceSides){
+        this.numOfDice = numOfDice;
         this.diceSides = diceSides;
-        this.odds = new HashMap<String, Double>();
-        this.chanceSquares = new ArrayList<String>();
-        this.chestSquares = new ArrayList<String>();
-        this.rrSquares = new ArrayList<String>();
-        this.utSquares = new ArrayList<String>();
+        this.odds = new double[0];
+        this.metrics = PhaseMetrics.DISABLED;
+        this.sink = ResultSink.console(false);
+    }
+    
+    
+    //records a phase for initBoard(), each odds-adjustment step, the markov solvers and
+    //printOdds() (see PhaseMetrics)
+    public void setMetrics(PhaseMetrics metrics){
+        this.metrics = metrics;
+    }
+    
+    
+    //sends the odds and sweep results somewhere other than the console, or in another format
+    //(see ResultSink). printMax3() and the other summary lines still go to the console
+    public void setSink(ResultSink sink){
+        this.sink = sink;
     }
     
     
@@ -64,36 +82,32 @@ class Monopoly {
     //this is the only function with hardcoded values. Changes here will not affect program!
     public void initBoard(){
         //add community chest (cc), chance (ch), and other important squares by number.
-        //if adjusting locations, please keep strings at size 2: i.e. "2" should be "02", etc.
-        this.chestSquares.add("02");
-        this.chestSquares.add("17");
-        this.chestSquares.add("33");
-        this.chanceSquares.add("07");
-        this.chanceSquares.add("22");
-        this.chanceSquares.add("36");
-        this.rrSquares.add("05");
-        this.rrSquares.add("15");
-        this.rrSquares.add("25");
-        this.rrSquares.add("35");
-        this.utSquares.add("12");
-        this.utSquares.add("28");
-        this.g2J = "30";
-        this.jail = "10";
-        this.go = "00";
-        this.numOfSquares = 40;     //do not increase past 99
-        this.numOfCards = 16;
+        int[] chestSquares = {2, 17, 33};
+        int[] chanceSquares = {7, 22, 36};
+        int[] rrSquares = {5, 15, 25, 35};
+        int[] utSquares = {12, 28};
+        int[] chanceTargets = {11, 24, 39, 5};  //"Advance to" C1, E3, H2 and R1
+        int g2J = 30;                           //-1 if the board has no "Go to Jail" space
+        int jail = 10;
+        int go = 0;
+        int numOfSquares = 40;
+        int numOfCards = 16;
+        //lookup tables (next railroad / utility, back 3) are built once, here
+        this.board = new MonopolyBoard(numOfSquares, numOfCards, go, jail, g2J, chanceSquares,
+                chestSquares, rrSquares, utSquares, chanceTargets);
         setOdds();
     }
     
     
     //set odds of rolling three doubles in a row (changes per number of sides on dice)
     public void setOdds(){
-        //odds of rolling three doubles in a row is: (1/ sides of dice) ^ 3
-        this.odds3Doubles = Math.pow((1.0 / (diceSides)), 3);
+        //odds of rolling three doubles in a row is: (odds of doubles) ^ 3, i.e. (1/ sides of dice) ^ 3
+        //for two dice. The (cached) dice distribution handles any number of dice
+        this.odds3Doubles = Math.pow(DiceDistribution.of(this.numOfDice, this.diceSides).doublesProb, 3);
         //set initial odds for each space 
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String squareId = normalizeKey(Integer.toString(i));
-            this.odds.put(squareId, (1.0 / this.numOfSquares));
+        this.odds = new double[this.board.numOfSquares];
+        for(int i = 0; i < this.board.numOfSquares; ++i){
+            this.odds[i] = 1.0 / this.board.numOfSquares;
         }
     }
     
@@ -103,77 +117,39 @@ class Monopoly {
     //cc square (CH3 -> CC3 is possible if "Go Back 3 Spaces" card is drawn).
     public void handleCC(){
         double ccOdds = 0.0;    // odds of landing on one of the community chest squares
-        for(String cc : this.chestSquares){
-            ccOdds += this.odds.get(cc);
+        for(int cc : this.board.chestSquares){
+            ccOdds += this.odds[cc];
         }
-        double adjustment = ccOdds / (double)this.numOfCards;  //odds of drawing any card
-        double jailOdds = this.odds.get(this.jail) + adjustment;
-        double goOdds = this.odds.get(this.go) + adjustment;
-        
-        //add all adjusted values back to this.odds:
-        this.odds.put(this.jail, jailOdds);
-        this.odds.put(this.go, goOdds);
+        double adjustment = ccOdds / (double)this.board.numOfCards;  //odds of drawing any card
+        this.odds[this.board.jail] += adjustment;
+        this.odds[this.board.go] += adjustment;
         
         //adjust odds of staying on community chest square
-        for(String cc : this.chestSquares){
-            ccOdds = this.odds.get(cc);
+        for(int cc : this.board.chestSquares){
             //as 2 cards move player to another square:
-            ccOdds *= (this.numOfCards -2)/(double)this.numOfCards; 
-            this.odds.put(cc, ccOdds);
+            this.odds[cc] *= (this.board.numOfCards - 2) / (double)this.board.numOfCards;
         }
     }
 
     
     //helper method for handleDependentCH (which is a helper method for handleCH())
     //finds next railroad after a given chance square (parameter ch)
-    public String findNextRailroad(String ch){
-        for(int i = Integer.parseInt(ch)+1; i < this.numOfSquares; ++i){
-            String check = normalizeKey(Integer.toString(i));
-            if(this.rrSquares.contains(check)){
-                return check;
-            }
-        }
-        //otherwise, we may have "lapped" the board and should check from the beginning:
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String check = normalizeKey(Integer.toString(i));
-            if(this.rrSquares.contains(check)){
-                return check;
-            }
-        }
-        return "ERROR"; //should never hit this point if it passed original errorCheck() method
+    public int findNextRailroad(int ch){
+        return this.board.nextRailroad[ch];     //-1 should never happen if it passed errorCheck()
     }
     
     
     //helper method for handleDependentCH (which is a helper method for handleCH())
     //finds next utility square after a given chance square (parameter ch)
-    public String findNextUtility(String ch){
-        for(int i = Integer.parseInt(ch)+1; i < this.numOfSquares; ++i){
-            String check = normalizeKey(Integer.toString(i));
-            if(this.utSquares.contains(check)){
-                return check;
-            }
-        }
-        //otherwise, we may have "lapped" the board and should check from the beginning:
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String check = normalizeKey(Integer.toString(i));
-            if(this.utSquares.contains(check)){
-                return check;
-            }
-        }
-        return "ERROR"; //should never hit this point if it passed original errorCheck() method
+    public int findNextUtility(int ch){
+        return this.board.nextUtility[ch];      //-1 should never happen if it passed errorCheck()
     }
             
             
     //helper method for handleDependentCH (which is a helper method for handleCH())
     //finds square 3 spaces back from given chance square (parameter ch)
-    public String goBack3(String ch){
-        int chInt = Integer.parseInt(ch);
-        chInt -= 3;
-        //check for negative values (which are invalid) - note, mod in java allows negative numbers
-        if(chInt < 0){
-            chInt += this.numOfSquares;
-        }
-        return normalizeKey(Integer.toString(chInt));
+    public int goBack3(int ch){
+        return this.board.back3[ch];
     }
     
     
@@ -181,22 +157,16 @@ class Monopoly {
     //chance square they are called from; i.e. "Go Back 3 Spaces" or "Go to Next Railroad".
     public void handleDependentCH(){
         //handle by each chance square:
-        for(String ch : this.chanceSquares){
-            double chOdds = this.odds.get(ch);
+        for(int ch : this.board.chanceSquares){
+            double chOdds = this.odds[ch];
             //first, railroads:
-            String nextR = findNextRailroad(ch);
-            double adjustment = (chOdds/(double)this.numOfCards)*2; //as there are 2 railroad cards
-            double rrOdds = this.odds.get(nextR) + adjustment;
-            this.odds.put(nextR, rrOdds);
+            double adjustment = (chOdds / (double)this.board.numOfCards) * 2;  //as there are 2 railroad cards
+            this.odds[findNextRailroad(ch)] += adjustment;
             //next, utility:
-            String nextUt = findNextUtility(ch);
-            adjustment = chOdds / (double)this.numOfCards;
-            double utOdds = this.odds.get(nextUt) + adjustment;
-            this.odds.put(nextUt, utOdds);
+            adjustment = chOdds / (double)this.board.numOfCards;
+            this.odds[findNextUtility(ch)] += adjustment;
             //lastly, "Go Back 3 Squares":
-            String back3 = goBack3(ch);
-            double back3Odds = this.odds.get(back3) + adjustment;
-            this.odds.put(back3, back3Odds);
+            this.odds[goBack3(ch)] += adjustment;
             //note: chance odds are adjusted back in calling method, handleCH().
         }
     }
@@ -205,81 +175,55 @@ class Monopoly {
     //adjusts odds of relevant squares based on chance cards
     public void handleCH(){
         double chOdds = 0.0;    //odds of landing on one of the chance squares
-        for(String ch : this.chanceSquares){
-            chOdds += this.odds.get(ch);
+        for(int ch : this.board.chanceSquares){
+            chOdds += this.odds[ch];
         }
-        double adjustment = chOdds / (double)this.numOfCards;      //odds of drawing any card = 1/16
+        double adjustment = chOdds / (double)this.board.numOfCards;      //odds of drawing any card = 1/16
         //adjust current odds for "move to X" cards:
-        double jailOdds = this.odds.get(this.jail) + adjustment;
-        double goOdds = this.odds.get(this.go) + adjustment;
-        double c1Odds = this.odds.get("11") + adjustment;    //square C1 = "11"
-        double e3Odds = this.odds.get("24") + adjustment;    //square E3 = "24"
-        double h2Odds = this.odds.get("39") + adjustment;    //square H2 = "39"
-        double r1Odds = this.odds.get("05") + adjustment;    //square R1 = "05"
-        this.odds.put(this.jail, jailOdds);
-        this.odds.put(this.go, goOdds);
-        this.odds.put("11", c1Odds);
-        this.odds.put("24", e3Odds);
-        this.odds.put("39", h2Odds);
-        this.odds.put("05", r1Odds);
+        this.odds[this.board.jail] += adjustment;
+        this.odds[this.board.go] += adjustment;
+        for(int target : this.board.chanceTargets){
+            this.odds[target] += adjustment;
+        }
         
         //handle spaces dependent on particular chance square (i.e. "Go to Next Railroad")
         handleDependentCH();
         
         //adjust odds of staying on ch squares:
-        for(String ch: this.chanceSquares){
-            chOdds = this.odds.get(ch);
+        for(int ch : this.board.chanceSquares){
             //as 10 cards move player to another (non chance) square:
-            chOdds *= (this.numOfCards - 10)/(double)this.numOfCards;  
-            this.odds.put(ch, chOdds);
+            this.odds[ch] *= (this.board.numOfCards - 10) / (double)this.board.numOfCards;
         }
     }
     
     
     //adjusts odds of going to jail, given 3 doubles in a row = straight to jail
     public void handle3Doubles(){
-        double temp = this.odds.get(this.jail);
-        temp += this.odds3Doubles;
-        this.odds.put(this.jail, temp);
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String square = normalizeKey(Integer.toString(i));
-            //doubles can be rolled from all spaces except "Go to Jail", as no turn can start there
-            //per prob. definition, rolling doubles from jail sends you back to jail (paid to get out)
-            if(square.equals(this.g2J)){
-                continue;
-            }
-            double currentOdds = this.odds.get(square);
-            double adjustedOdds;
-            if(this.g2J.equals("")){
-                adjustedOdds = currentOdds - (this.odds3Doubles / (this.numOfSquares));
-            }
-            else{
-                adjustedOdds = currentOdds - (this.odds3Doubles / (this.numOfSquares-1));
+        this.odds[this.board.jail] += this.odds3Doubles;
+        //doubles can be rolled from all spaces except "Go to Jail", as no turn can start there
+        //per prob. definition, rolling doubles from jail sends you back to jail (paid to get out)
+        double adjustment;
+        if(this.board.g2J < 0){
+            adjustment = this.odds3Doubles / this.board.numOfSquares;
+        }
+        else{
+            adjustment = this.odds3Doubles / (this.board.numOfSquares - 1);
+        }
+        for(int i = 0; i < this.board.numOfSquares; ++i){
+            if(i != this.board.g2J){
+                this.odds[i] -= adjustment;
             }
-            this.odds.put(square, adjustedOdds);
         }
     }
             
     
     //accounts for "Go To Jail" space. Should be adjusted very last 
     public void handleG2J(){
-        if(this.g2J.equals("")){
+        if(this.board.g2J < 0){
             return;
         }
-        double g2JOdds = this.odds.get(this.g2J);
-        double jailOdds = this.odds.get(this.jail);
-        this.odds.put(this.jail, (g2JOdds + jailOdds));
-        this.odds.put(this.g2J, 0.0);
-    }
-    
-    
-    //basic helper method - changes '0' to '00' and '1' to '01' but '11' etc would remain unchanged.
-    //ensures consistency in labels (all labels must be exactly 2 letters)
-    public String normalizeKey(String key){
-        if(key.length() == 1){
-            key = "0" + key;
-        }
-        return key;
+        this.odds[this.board.jail] += this.odds[this.board.g2J];
+        this.odds[this.board.g2J] = 0.0;
     }
         
      
@@ -289,59 +233,80 @@ class Monopoly {
         double max1 = 0.0;
         double max2 = 0.0;
         double max3 = 0.0;
-        String max1S = "";
-        String max2S = ""; 
-        String max3S = "";
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String key = normalizeKey(Integer.toString(i));
-            double val = this.odds.get(key);
+        int max1S = -1;
+        int max2S = -1; 
+        int max3S = -1;
+        for(int i = 0; i < this.board.numOfSquares; ++i){
+            double val = this.odds[i];
             if(val > max1){
                 max3 = max2;
                 max3S = max2S;
                 max2 = max1;
                 max2S = max1S;
                 max1 = val;
-                max1S = key;
+                max1S = i;
             }
             else if(val > max2){
                 max3 = max2;
                 max3S = max2S;
                 max2 = val;
-                max2S = key;
+                max2S = i;
             }
             else if(val > max3){
                 max3 = val;
-                max3S = key;
+                max3S = i;
             }
         } 
         System.out.println("\n\nThe top 3 spaces by probability are:");
-        System.out.printf("[%s]: %.4f%%\t[%s]: %.4f%%\t[%s]: %.4f%%\n", max1S, max1*100, max2S, max2*100, max3S, max3*100);
+        System.out.printf("[%s]: %.4f%%\t[%s]: %.4f%%\t[%s]: %.4f%%\n", printLabel(max1S), max1*100,
+                printLabel(max2S), max2*100, printLabel(max3S), max3*100);
     }
-                
     
-    //prints this.odds HashMap, i.e. probabilities for each of the 40 spaces 
-    public void printOdds(){
-        for(int i = 0; i < this.numOfSquares; ++i){
-            if(i % 5 == 0){
-                System.out.println();
+    
+    //the k squares with the highest odds, most likely first (ties go to the lower square)
+    static int[] topSquares(double[] odds, int k){
+        int[] top = new int[Math.min(k, odds.length)];
+        for(int n = 0; n < top.length; ++n){
+            int best = -1;
+            for(int i = 0; i < odds.length; ++i){
+                boolean taken = false;
+                for(int t = 0; t < n; ++t){
+                    taken |= top[t] == i;
+                }
+                if(!taken && (best < 0 || odds[i] > odds[best])){
+                    best = i;
+                }
             }
-            String key = normalizeKey(Integer.toString(i));
-            System.out.printf("[%s]: %.4f%%\t", key, this.odds.get(key) * 100);
+            top[n] = best;
         }
+        return top;
+    }
+    
+    
+    //label for printing; -1 (no such square) prints as an empty label
+    private String printLabel(int square){
+        return square < 0 ? "" : this.board.label(square);
+    }
+                
+    
+    //prints this.odds array, i.e. probabilities for each of the spaces
+    public void printOdds(){
+        this.sink.odds(this.board, this.odds);
+        this.sink.flush();
         printMax3();
     }
         
         
     //performs basic error checking. See the console prints below for more information.
     public void errorCheck(){
-        if(!this.chanceSquares.isEmpty()){
-            if(this.rrSquares.isEmpty() | this.utSquares.isEmpty() | this.go.equals("") | this.jail.equals("")){
+        if(this.board.chanceSquares.length != 0){
+            if(this.board.rrSquares.length == 0 | this.board.utSquares.length == 0 | this.board.go < 0 | this.board.jail < 0){
                 System.out.println("Chance Squares require at least one Railroad and Utility squares exist, as well as one Go and Jail square. Please either add these, or remove all Chance squares.");
                 System.exit(-1);
             }
         }
-        if(!this.chestSquares.isEmpty()){
-            if(this.go.equals("") | this.jail.equals("")){
+        if(this.board.chestSquares.length != 0){
+            if(this.board.go < 0 | this.board.jail < 0){
                 System.out.println("Community Chest Squares depend on one Go and one Jail square existing. Please either add these, or remove all Community Chest squares.");
                 System.exit(-1);
             }
@@ -353,9 +318,8 @@ class Monopoly {
     //uses an epsilon of .0001 (1/100 of one percent - BigDecimal class would have better precision)
     public void checkAnswer(){
         double sum = 0.0;
-        for(int i = 0; i < this.numOfSquares; ++i){
-            String key = normalizeKey(Integer.toString(i)); 
-            sum += this.odds.get(key);
+        for(int i = 0; i < this.board.numOfSquares; ++i){
+            sum += this.odds[i];
         }
         if(Math.abs(sum - 1.0) <= .0001){
             System.out.printf("\nProbabilites correctly sum to 1.0 (100%%).\n\n");
@@ -368,24 +332,260 @@ class Monopoly {
         
     //This is the driver | entry method, ensures correct sequence of odd-adjustment
     public void driver(){
-        initBoard();
+        findOdds();
+        try(PhaseMetrics.Phase phase = this.metrics.start("printOdds")){
+            printOdds();
+            phase.items(this.board.numOfSquares);
+        }
+        checkAnswer();      //does not verify correctness, but ensures odds approx. add to 100%
+    }
+    
+    
+    //everything driver() does short of printing: builds the board and runs the odds-adjustment
+    //steps in order. Returns the final odds (also left in this.odds)
+    public double[] findOdds(){
+        try(PhaseMetrics.Phase phase = this.metrics.start("initBoard")){
+            initBoard();
+            phase.items(this.board.numOfSquares);
+        }
         errorCheck();       //ensures at least 1 railroad, utility, etc square exist (req. for chance)
-        handle3Doubles();   //called first, as rolling 3 doubles automatically = jail
-        handleCH();         //must be called before handleCC() for correct results
-        handleCC();         //can be called anytime after handle3Doubles() and handleCH()
-        handleG2J();        //handle "Go to Jail" space (if applicable). Should be done last.
+        try(PhaseMetrics.Phase phase = this.metrics.start("handle3Doubles")){
+            handle3Doubles();   //called first, as rolling 3 doubles automatically = jail
+            phase.items(this.board.numOfSquares);
+        }
+        try(PhaseMetrics.Phase phase = this.metrics.start("handleCH")){
+            handleCH();         //must be called before handleCC() for correct results
+            phase.items(this.board.chanceSquares.length);
+        }
+        try(PhaseMetrics.Phase phase = this.metrics.start("handleCC")){
+            handleCC();         //can be called anytime after handle3Doubles() and handleCH()
+            phase.items(this.board.chestSquares.length);
+        }
+        try(PhaseMetrics.Phase phase = this.metrics.start("handleG2J")){
+            handleG2J();        //handle "Go to Jail" space (if applicable). Should be done last.
+            phase.items(this.board.g2J < 0 ? 0 : 1);
+        }
+        return this.odds;
+    }
+    
+    
+    //sets this.odds to the stationary distribution of the markov chain (position x doubles count)
+    //built from the dice and the board. Stops once one iteration changes the odds by less than
+    //tolerance (L1 norm)
+    public void solveMarkov(double tolerance){
+        try(PhaseMetrics.Phase phase = this.metrics.start("solveMarkov")){
+            MonopolyMarkov chain = new MonopolyMarkov(this.board, this.numOfDice, this.diceSides);
+            this.odds = chain.solve(tolerance, 1000000);
+            phase.items(chain.iterations());
+        }
+    }
+    
+    
+    //driver for the markov chain solution. Unlike driver(), this accounts for where turns start
+    public void driverMarkov(){
+        initBoard();
+        errorCheck();
+        solveMarkov(1e-12);
         printOdds();
-        checkAnswer();      //does not verify correctness, but ensures odds approx. add to 100%
+        checkAnswer();
+    }
+    
+    
+    //same as solveMarkov(), but on the sparse form of the chain with gauss-seidel / SOR (omega =
+    //1.0 is plain gauss-seidel). Memory and time grow with the number of transitions rather than
+    //with numOfSquares^2, so this is the one to use for boards with thousands of squares
+    public void solveSparse(double tolerance, double omega){
+        try(PhaseMetrics.Phase phase = this.metrics.start("solveSparse")){
+            MonopolyMarkov chain = new MonopolyMarkov(this.board, this.numOfDice, this.diceSides);
+            this.odds = chain.solveSparse(tolerance, 100000, omega);
+            phase.items(chain.iterations());
+        }
+    }
+    
+    
+    //driver for very large boards: the standard layout repeated copies times around, solved with
+    //solveSparse(). Prints the top 3 squares (all of them for a single copy)
+    public void driverSparse(int copies){
+        initBoard();
+        this.board = this.board.repeat(copies);
+        setOdds();
+        errorCheck();
+        solveSparse(1e-12, 1.0);
+        if(copies == 1)
+            printOdds();
+        else
+            printMax3();
+        checkAnswer();
+    }
+    
+    
+    //modal string for every dice size from minSides to maxSides on this board (see
+    //MonopolySweep), printed as each one finishes
+    public void driverSweep(int minSides, int maxSides, int threads){
+        driverSweep(1, minSides, maxSides, threads, false);
+    }
+    
+    
+    //same as above; batched solves the dice sizes as dense chains in lockstep, one batch per
+    //thread (see MonopolyMarkov.solveBatch()), on the SIMD kernel where there is one
+    public void driverSweep(int minSides, int maxSides, int threads, boolean batched){
+        driverSweep(1, minSides, maxSides, threads, batched);
+    }
+    
+    
+    //same as above, over the standard board and layouts - 1 alternative layouts made from it
+    //(see MonopolySweep.layouts(); the same ones every run)
+    public void driverSweep(int layouts, int minSides, int maxSides, int threads, boolean batched){
+        initBoard();
+        errorCheck();
+        driverSweep(MonopolySweep.layouts(this.board, layouts, 1L), minSides, maxSides, threads, batched);
+    }
+    
+    
+    //same as above, over the given layouts, with this game's number of dice
+    public void driverSweep(List<MonopolyBoard> layouts, int minSides, int maxSides, int threads, boolean batched){
+        long start = System.nanoTime();
+        new MonopolySweep(threads, this.numOfDice, 1e-12, batched).run(layouts, minSides, maxSides,
+                result -> this.sink.sweep(result));
+        this.sink.flush();
+        System.out.printf("Swept %d layout(s) x %d dice sizes on %d thread(s) in %.3f s\n", layouts.size(),
+                maxSides - minSides + 1, threads, (System.nanoTime() - start) / 1e9);
+    }
+    
+    
+    //sets this.odds from a monte carlo simulation of the given number of rolls, split over
+    //threads workers (see MonopolySimulator). Returns the run, for its throughput numbers
+    public MonopolySimulator.Result simulate(long turns, int threads){
+        MonopolySimulator simulator = new MonopolySimulator(this.board, this.numOfDice, this.diceSides);
+        MonopolySimulator.Result result = simulator.run(turns, threads, System.nanoTime());
+        this.odds = result.odds();
+        return result;
     }
     
     
-    //testing method
-    public static void main(String[] args){
-        Scanner sc = new Scanner(System.in);
-        System.out.printf("Enter the number of sides per dice: ");
-        int sides = sc.nextInt();
-        Monopoly test = new Monopoly(sides);
-        test.driver();
+    //driver for the simulated solution - useful to cross-check driverMarkov() at large sample sizes
+    public void driverSimulated(long turns, int threads){
+        initBoard();
+        errorCheck();
+        MonopolySimulator.Result result = simulate(turns, threads);
+        printOdds();
+        checkAnswer();
+        System.out.printf("Simulated %d turns on %d thread(s) in %.3f s (%.0f turns/s)\n",
+                result.turns, result.threads, result.nanos / 1e9, result.turnsPerSecond());
+    }
+    
+    
+    //solveSparse(), but stops as soon as the top 3 squares can no longer change order (or the
+    //residual drops below tolerance). Returns the monitor with the per-iteration trace
+    public ConvergenceMonitor solveUntilStable(double tolerance){
+        MonopolyMarkov chain = new MonopolyMarkov(this.board, this.numOfDice, this.diceSides);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(tolerance, 3, 0.95);
+        this.odds = chain.solveSparse(monitor, 100000, 1.0);
+        return monitor;
+    }
+    
+    
+    //simulate(), but in rounds of a million rolls per thread until the top 3 squares are separated
+    //at the given confidence (or maxTurns rolls have been played). Returns the monitor with the
+    //per-round trace and confidence intervals
+    public ConvergenceMonitor simulateUntilStable(double confidence, int threads, long maxTurns){
+        MonopolySimulator simulator = new MonopolySimulator(this.board, this.numOfDice, this.diceSides);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(0.0, 3, confidence);
+        this.odds = simulator.runUntilStable(monitor, threads, 1000000L * threads, maxTurns, System.nanoTime()).odds();
+        return monitor;
+    }
+    
+    
+    //driver for the early-stopping solutions: the top 3 from the solver and from the simulator,
+    //with how much work each one needed to settle them
+    public void driverConverge(int threads){
+        initBoard();
+        errorCheck();
+        ConvergenceMonitor solved = solveUntilStable(1e-12);
+        System.out.printf("Solver: %s after %d iteration(s) (%s)\n", topString(), solved.steps(),
+                solved.converged() ? "settled" : "not settled");
+        ConvergenceMonitor sampled = simulateUntilStable(0.99, threads, 10000000000L);
+        ConvergenceMonitor.Step last = sampled.last();
+        System.out.printf("Simulator: %s after %d turns (%s, widest 99%% interval +/- %.5f%%)\n", topString(),
+                last.progress, sampled.converged() ? "settled" : "not settled", last.residual * 100);
+    }
+    
+    
+    //modal string of the current odds, e.g. "102400" for squares 10, 24 and 00
+    private String topString(){
+        StringBuilder modal = new StringBuilder();
+        for(int square : topSquares(this.odds, 3)){
+            modal.append(this.board.label(square));
+        }
+        return modal.toString();
+    }
+    
+    
+    //runs the same simulation on 1 to maxThreads threads and prints throughput and speedup
+    public void printScaling(long turns, int maxThreads){
+        initBoard();
+        errorCheck();
+        MonopolySimulator simulator = new MonopolySimulator(this.board, this.numOfDice, this.diceSides);
+        double base = 0.0;
+        for(int threads = 1; threads <= maxThreads; ++threads){
+            double rate = simulator.run(turns, threads, threads).turnsPerSecond();
+            if(threads == 1){
+                base = rate;
+            }
+            System.out.printf("%2d thread(s): %.0f turns/s (%.2fx)\n", threads, rate, rate / base);
+        }
+    }
+    
+    
+    //testing method. First argument picks the driver: markov, simulate [turns] [threads],
+    //scaling [turns] [threads], sparse [copies], converge [threads], sweep [threads] [layouts]
+    //[batch] (2 to 20 sides, no prompt); anything else runs driver(). -Dmetrics=file.json for
+    //per-phase metrics, -Dresults=file for the results (see ResultSink.open()), -Dsimd=false for
+    //the scalar kernel
+    public static void main(String[] args) throws IOException{
+        String mode = args.length > 0 ? args[0] : "";
+        long turns = args.length > 1 ? Long.parseLong(args[1]) : 100000000L;
+        int threads = args.length > 2 && !mode.equals("sweep") ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        PhaseMetrics metrics = PhaseMetrics.fromSystemProperty();
+        try(ResultSink sink = ResultSink.open(System.getProperty("results"))){
+            if(mode.equals("sweep")){
+                int sweepThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+                Monopoly sweep = new Monopoly(2);
+                sweep.setMetrics(metrics);
+                sweep.setSink(sink);
+                boolean batched = false;
+                int layouts = 1;
+                for(int i = 2; i < args.length; ++i){
+                    if(args[i].equals("batch"))
+                        batched = true;
+                    else
+                        layouts = Integer.parseInt(args[i]);
+                }
+                sweep.driverSweep(layouts, 2, 20, sweepThreads, batched);
+                return;
+            }
+            Scanner sc = new Scanner(System.in);
+            System.out.printf("Enter the number of sides per dice: ");
+            int sides = sc.nextInt();
+            Monopoly test = new Monopoly(sides);
+            test.setMetrics(metrics);
+            test.setSink(sink);
+            if(mode.equals("markov"))
+                test.driverMarkov();
+            else if(mode.equals("simulate"))
+                test.driverSimulated(turns, threads);
+            else if(mode.equals("scaling"))
+                test.printScaling(turns, threads);
+            else if(mode.equals("sparse"))
+                test.driverSparse(args.length > 1 ? Integer.parseInt(args[1]) : 1);
+            else if(mode.equals("converge"))
+                test.driverConverge(args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+            else
+                test.driver();
+        }
+        finally{
+            metrics.writeJsonIfRequested();
+        }
     }
 }
     
@@ -0,0 +1,226 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+
+/* Board layout used by Monopoly, indexed by square number.
+
+Squares are plain ints from 0 to numOfSquares-1 (no string keys), so boards can be any size. The
+destinations of the square-dependent chance cards ("Go to Next Railroad", "Go to Next Utility",
+"Go Back 3 Squares") are precomputed once per square into lookup tables, so the odds adjustments
+never search the board or allocate. String labels ("00", "05", ...) are only built when printing.
+
+The same goes for the full effect of landing on a square (landDest / landProb): where the token
+can finish its move and with what probability, once "Go to Jail", community chest and chance
+cards are applied. None of this depends on the dice, so one board can be shared by every solver
+and dice size.
+
+A missing go, jail or "Go to Jail" square is given as -1. */
+
+
+class MonopolyBoard {
+
+    //landDest entry for "sent to jail" (as opposed to just landing on the jail square), which
+    //ends the turn and resets the doubles count
+    static final int SENT_TO_JAIL = -1;
+
+    final int numOfSquares;     //most boards have 40 spaces
+    final int numOfCards;       //number of chance and comm. chest cards (identical, typ. = 16)
+    final int go;
+    final int jail;
+    final int g2J;              //go to jail space (-1 if the board has none)
+    final int[] chanceSquares;  //chance squares (ch)
+    final int[] chestSquares;   //community chest squares (cc)
+    final int[] rrSquares;      //railroads
+    final int[] utSquares;      //utilities
+    final int[] chanceTargets;  //squares named by the "Advance to X" chance cards (other than go / jail)
+    final int[] nextRailroad;   //nextRailroad[i] = first railroad after square i (-1 if none)
+    final int[] nextUtility;    //nextUtility[i] = first utility after square i (-1 if none)
+    final int[] back3;          //back3[i] = square 3 spaces back from square i
+    final int[][] landDest;     //landDest[i] = squares a move that lands on i can finish on (SENT_TO_JAIL = sent to jail)
+    final double[][] landProb;  //landProb[i][k] = probability of finishing on landDest[i][k]
+    private final int labelWidth;   //digits per printed label (at least 2, i.e. "00" to "39")
+
+
+    MonopolyBoard(int numOfSquares, int numOfCards, int go, int jail, int g2J, int[] chanceSquares,
+            int[] chestSquares, int[] rrSquares, int[] utSquares, int[] chanceTargets){
+        this.numOfSquares = numOfSquares;
+        this.numOfCards = numOfCards;
+        this.go = go;
+        this.jail = jail;
+        this.g2J = g2J;
+        this.chanceSquares = chanceSquares.clone();
+        this.chestSquares = chestSquares.clone();
+        this.rrSquares = rrSquares.clone();
+        this.utSquares = utSquares.clone();
+        this.chanceTargets = chanceTargets.clone();
+        this.nextRailroad = nextOf(rrSquares, numOfSquares);
+        this.nextUtility = nextOf(utSquares, numOfSquares);
+        this.back3 = new int[numOfSquares];
+        for(int i = 0; i < numOfSquares; ++i){
+            //Math.floorMod, as % in java allows negative numbers
+            this.back3[i] = Math.floorMod(i - 3, numOfSquares);
+        }
+        this.labelWidth = Math.max(2, Integer.toString(numOfSquares - 1).length());
+        this.landDest = new int[numOfSquares][];
+        this.landProb = new double[numOfSquares][];
+        double[] scratch = new double[numOfSquares + 1];     //last slot = sent to jail
+        for(int i = 0; i < numOfSquares; ++i){
+            resolve(i, 1.0, 0, scratch);
+            int count = 0;
+            for(double p : scratch){
+                if(p != 0.0){
+                    count++;
+                }
+            }
+            this.landDest[i] = new int[count];
+            this.landProb[i] = new double[count];
+            int next = 0;
+            for(int j = 0; j <= numOfSquares; ++j){
+                if(scratch[j] != 0.0){
+                    this.landDest[i][next] = j == numOfSquares ? SENT_TO_JAIL : j;
+                    this.landProb[i][next] = scratch[j];
+                    next++;
+                    scratch[j] = 0.0;
+                }
+            }
+        }
+    }
+
+
+    //a board that repeats this layout times times around (numOfSquares * times squares). Go, jail,
+    //"Go to Jail" and the "Advance to" targets stay in the first copy; every other special square
+    //is repeated. Used to model very large boards
+    MonopolyBoard repeat(int times){
+        int n = this.numOfSquares;
+        return new MonopolyBoard(n * times, this.numOfCards, this.go, this.jail, this.g2J,
+                repeat(this.chanceSquares, n, times), repeat(this.chestSquares, n, times),
+                repeat(this.rrSquares, n, times), repeat(this.utSquares, n, times), this.chanceTargets);
+    }
+
+
+    //the same board with its chance, community chest, railroad and utility squares moved to
+    //random other squares (as many of each as before, never two on one square). Go, jail, "Go to
+    //Jail" and the "Advance to" targets stay where they are. Used to sweep alternative layouts
+    MonopolyBoard shuffle(SplittableRandom random){
+        int n = this.numOfSquares;
+        int[] free = new int[n];
+        int count = 0;
+        for(int i = 0; i < n; ++i){
+            if(i != this.go && i != this.jail && i != this.g2J){
+                free[count++] = i;
+            }
+        }
+        int ch = this.chanceSquares.length;
+        int cc = this.chestSquares.length;
+        int rr = this.rrSquares.length;
+        int ut = this.utSquares.length;
+        if(ch + cc + rr + ut > count){
+            throw new IllegalArgumentException("not enough free squares to shuffle the layout");
+        }
+        //partial fisher-yates: the first ch + cc + rr + ut free squares end up a random pick
+        for(int i = 0; i < ch + cc + rr + ut; ++i){
+            int j = i + random.nextInt(count - i);
+            int swap = free[i];
+            free[i] = free[j];
+            free[j] = swap;
+        }
+        return new MonopolyBoard(n, this.numOfCards, this.go, this.jail, this.g2J,
+                sorted(free, 0, ch), sorted(free, ch, ch + cc), sorted(free, ch + cc, ch + cc + rr),
+                sorted(free, ch + cc + rr, ch + cc + rr + ut), this.chanceTargets);
+    }
+
+
+    private static int[] sorted(int[] squares, int from, int to){
+        int[] result = Arrays.copyOfRange(squares, from, to);
+        Arrays.sort(result);
+        return result;
+    }
+
+
+    //copies of squares shifted by n, 2n, ... (times copies in all)
+    private static int[] repeat(int[] squares, int n, int times){
+        int[] result = new int[squares.length * times];
+        for(int t = 0; t < times; ++t){
+            for(int k = 0; k < squares.length; ++k){
+                result[t * squares.length + k] = squares[k] + t * n;
+            }
+        }
+        return result;
+    }
+
+
+    //zero-padded label for a square, i.e. 5 -> "05" on a 40 square board
+    String label(int square){
+        String key = Integer.toString(square);
+        while(key.length() < this.labelWidth){
+            key = "0" + key;
+        }
+        return key;
+    }
+
+
+    //adds to out where a token landing on square ends up, weighted by prob. out[numOfSquares] is
+    //"sent to jail". depth > 0 means we got here from a chance card ("Go Back 3 Squares"), in which
+    //case another chance square is treated as a plain square rather than drawing again.
+    //cards that point at a square the board doesn't have (-1) leave the token where it is
+    private void resolve(int square, double prob, int depth, double[] out){
+        int sentToJail = this.jail < 0 ? square : this.numOfSquares;
+        double perCard = prob / this.numOfCards;
+        if(square == this.g2J){
+            out[sentToJail] += prob;
+        }
+        else if(contains(this.chestSquares, square)){
+            //cc: "Advance to Go" and "Go to Jail", every other card stays put
+            out[this.go < 0 ? square : this.go] += perCard;
+            out[sentToJail] += perCard;
+            out[square] += prob - 2 * perCard;
+        }
+        else if(depth == 0 && contains(this.chanceSquares, square)){
+            //ch: go, jail, the "Advance to" targets, 2x next railroad, next utility, back 3
+            out[this.go < 0 ? square : this.go] += perCard;
+            out[sentToJail] += perCard;
+            for(int target : this.chanceTargets){
+                out[target] += perCard;
+            }
+            out[this.nextRailroad[square] < 0 ? square : this.nextRailroad[square]] += 2 * perCard;
+            out[this.nextUtility[square] < 0 ? square : this.nextUtility[square]] += perCard;
+            resolve(this.back3[square], perCard, depth + 1, out);
+            out[square] += prob - (6 + this.chanceTargets.length) * perCard;
+        }
+        else{
+            out[square] += prob;
+        }
+    }
+
+
+    //linear search - only used while building the tables
+    private static boolean contains(int[] squares, int square){
+        for(int s : squares){
+            if(s == square){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    //for every square, the first of the given squares strictly after it, lapping the board if
+    //needed (-1 if there are none). Two backwards sweeps handle the wrap-around in O(n)
+    private static int[] nextOf(int[] squares, int numOfSquares){
+        boolean[] marked = new boolean[numOfSquares];
+        for(int s : squares){
+            marked[s] = true;
+        }
+        int[] table = new int[numOfSquares];
+        int next = -1;
+        for(int pass = 0; pass < 2; ++pass){
+            for(int i = numOfSquares - 1; i >= 0; --i){
+                table[i] = next;
+                if(marked[i]){
+                    next = i;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,351 @@
+import java.util.Arrays;
+import java.util.List;
+
+
+/* Markov-chain solver for the long-run odds of finishing a turn on each square.
+
+This replaces the one-pass adjustments in Monopoly.driver() (which ignore where each turn starts)
+with the real chain. A state is (square, number of doubles rolled in a row so far: 0, 1 or 2),
+and the transition probabilities come from the dice (see DiceDistribution - any number of dice
+and sides) and the landing tables of the board:
+    - a third double in a row goes straight to jail without moving
+    - otherwise the token moves by the roll, then "Go to Jail", cc and ch cards are applied
+    - being sent to jail ends the turn (doubles count back to 0); a double that doesn't send the
+      token to jail carries on to the next roll with the count one higher
+
+The stationary distribution is found by power iteration on a dense, primitive transition matrix,
+stored transposed (matrix[to * states + from]) so each step is one dot product per state. The odds
+of a square are the sum over its three states. The matrix-vector product runs on a MatVecKernel
+(SIMD where the JVM supports it), and solveBatch() iterates several chains of the same size in
+lockstep, one interleaved pass over all of their matrices per step.
+
+The dense matrix grows as states^2, which rules it out for boards with thousands of squares. From
+any state only about numOfDice * diceSides roll totals (times a handful of card destinations) are possible, so
+solveSparse() builds the same chain as a compressed sparse row matrix (see SparseMatrix) and solves
+it by Gauss-Seidel / successive over-relaxation instead. The dense matrix is only built if solve()
+is called. */
+
+
+class MonopolyMarkov {
+
+    //a transition of the chain: from state, to state, probability
+    interface TransitionSink {
+        void add(int from, int to, double prob);
+    }
+
+    private final MonopolyBoard board;
+    private final DiceDistribution dice;    //roll totals, split into doubles and non-doubles
+    private final int states;           //numOfSquares * 3
+    private double[] matrix;            //transposed transition matrix, matrix[to * states + from] (built on demand)
+    private int iterations;             //iterations used by the last solve() / solveSparse()
+    private MatVecKernel kernel;        //matrix-vector product for solve()
+
+
+    MonopolyMarkov(MonopolyBoard board, int diceSides){
+        this(board, 2, diceSides);
+    }
+
+
+    //chain for any number of dice (doubles = every die showing the same face)
+    MonopolyMarkov(MonopolyBoard board, int numOfDice, int diceSides){
+        this.board = board;
+        this.dice = DiceDistribution.of(numOfDice, diceSides);
+        this.states = board.numOfSquares * 3;
+        this.kernel = MatVecKernel.best();
+    }
+
+
+    //kernel for solve()'s matrix-vector products (MatVecKernel.best() by default)
+    void setKernel(MatVecKernel kernel){
+        this.kernel = kernel;
+    }
+
+
+    //the dense transposed transition matrix, built on first use
+    private double[] dense(){
+        if(this.matrix == null){
+            if((long)this.states * this.states > Integer.MAX_VALUE - 8){
+                throw new IllegalStateException("board too large for the dense solver, use solveSparse()");
+            }
+            double[] m = new double[this.states * this.states];
+            addTransitions((from, to, prob) -> m[to * this.states + from] += prob);
+            this.matrix = m;
+        }
+        return this.matrix;
+    }
+
+
+    //state index for a square and the number of doubles rolled in a row before this turn
+    static int state(int square, int doubles){
+        return square * 3 + doubles;
+    }
+
+
+    //number of states in the chain
+    int states(){
+        return this.states;
+    }
+
+
+    //iterations used by the last solve() / solveSparse()
+    int iterations(){
+        return this.iterations;
+    }
+
+
+    //hands every transition of the chain to sink (a (from, to) pair may come up more than once;
+    //the probabilities add up)
+    void addTransitions(TransitionSink sink){
+        int n = this.board.numOfSquares;
+        double[] doubles = this.dice.doubles;
+        int maxTotal = this.dice.maxTotal();
+        int jailed = state(this.board.jail, 0);
+        for(int square = 0; square < n; ++square){
+            for(int d = 0; d < 3; ++d){
+                int from = state(square, d);
+                for(int sum = 1; sum <= maxTotal; ++sum){
+                    if(doubles[sum] != 0.0){
+                        if(d == 2){
+                            sink.add(from, jailed, doubles[sum]);     //third double in a row
+                        }
+                        else{
+                            land((square + sum) % n, d + 1, doubles[sum], from, sink);
+                        }
+                    }
+                    double others = this.dice.nonDoubles(sum);
+                    if(others > 0.0){
+                        land((square + sum) % n, 0, others, from, sink);
+                    }
+                }
+            }
+        }
+    }
+
+
+    //adds the transitions for a roll (of probability prob) landing on square
+    private void land(int square, int doubles, double prob, int from, TransitionSink sink){
+        int[] dest = this.board.landDest[square];
+        double[] destProb = this.board.landProb[square];
+        for(int k = 0; k < dest.length; ++k){
+            int to = dest[k] == MonopolyBoard.SENT_TO_JAIL ? state(this.board.jail, 0) : state(dest[k], doubles);
+            sink.add(from, to, prob * destProb[k]);
+        }
+    }
+
+
+    //stationary distribution over squares, by power iteration from the uniform distribution.
+    //stops once the L1 change of one step, over all states, is below tolerance (or after
+    //maxIterations)
+    double[] solve(double tolerance, int maxIterations){
+        return solve(new ConvergenceMonitor(tolerance), maxIterations);
+    }
+
+
+    //same as above, but monitor decides when to stop (and keeps the convergence trace)
+    double[] solve(ConvergenceMonitor monitor, int maxIterations){
+        double[] matrix = dense();
+        int s = this.states;
+        double[] pi = new double[s];
+        double[] next = new double[s];
+        double[] odds = new double[this.board.numOfSquares];
+        Arrays.fill(pi, 1.0 / s);
+        this.iterations = 0;
+        boolean done = false;
+        while(!done && this.iterations < maxIterations){
+            this.kernel.multiply(matrix, pi, next, s);
+            double change = 0.0;
+            for(int state = 0; state < s; ++state){
+                change += Math.abs(next[state] - pi[state]);
+            }
+            double[] swap = pi;
+            pi = next;
+            next = swap;
+            this.iterations++;
+            done = monitor.iterate(squareOdds(pi, odds), change);
+        }
+        return squareOdds(pi, new double[this.board.numOfSquares]);
+    }
+
+
+    //solve() for every chain at once (they must all have the same number of states, e.g. one
+    //board with different dice): the dense matrices are interleaved (see MatVecKernel) and every
+    //step is one kernel pass over all of them. Each chain stops on its own, at the same step
+    //solve() would have - its odds are taken there, and its iterations() set. Once enough chains
+    //have stopped to free a whole kernel.lanes() worth of lanes, the ones still running are
+    //packed into a narrower batch, so finished chains don't keep costing a pass each step.
+    //Returns the odds of chains[k] in [k]
+    static double[][] solveBatch(List<MonopolyMarkov> chains, double tolerance, int maxIterations, MatVecKernel kernel){
+        int batch = chains.size();
+        double[][] results = new double[batch][];
+        if(batch == 0){
+            return results;
+        }
+        int s = chains.get(0).states;
+        int squares = chains.get(0).board.numOfSquares;
+        for(MonopolyMarkov chain : chains){
+            if(chain.states != s){
+                throw new IllegalArgumentException("chains in a batch must have the same number of states");
+            }
+        }
+        ConvergenceMonitor[] monitors = new ConvergenceMonitor[batch];
+        double[][] odds = new double[batch][squares];
+        int[] lanes = new int[batch];           //chain in each lane (-1 once it has stopped)
+        for(int k = 0; k < batch; ++k){
+            monitors[k] = new ConvergenceMonitor(tolerance);
+            lanes[k] = k;
+        }
+        int used = batch;                       //lanes in use, running or not
+        int running = batch;
+        int width = lanesFor(used, kernel);
+        double[] pi = new double[s * width];
+        for(int k = 0; k < used; ++k){
+            for(int state = 0; state < s; ++state){
+                pi[state * width + k] = 1.0 / s;
+            }
+        }
+        double[] matrices = interleave(chains, lanes, used, width);
+        double[] next = new double[s * width];
+        for(int iteration = 1; running > 0 && iteration <= maxIterations; ++iteration){
+            kernel.multiplyBatch(matrices, pi, next, s, width);
+            double[] swap = pi;
+            pi = next;
+            next = swap;
+            for(int k = 0; k < used; ++k){
+                int chain = lanes[k];
+                if(chain >= 0 && (monitors[chain].iterate(batchOdds(pi, width, k, odds[chain]), change(pi, next, width, k, s))
+                        || iteration == maxIterations)){
+                    results[chain] = odds[chain];
+                    chains.get(chain).iterations = iteration;
+                    lanes[k] = -1;
+                    running--;
+                }
+            }
+            int narrower = lanesFor(running, kernel);
+            if(running > 0 && narrower < width){
+                //pack the running chains into the first lanes of a narrower batch, in order
+                double[] packed = new double[s * narrower];
+                int kept = 0;
+                for(int k = 0; k < used; ++k){
+                    if(lanes[k] >= 0){
+                        for(int state = 0; state < s; ++state){
+                            packed[state * narrower + kept] = pi[state * width + k];
+                        }
+                        lanes[kept++] = lanes[k];
+                    }
+                }
+                used = kept;
+                width = narrower;
+                pi = packed;
+                next = new double[s * width];
+                matrices = interleave(chains, lanes, used, width);
+            }
+        }
+        return results;
+    }
+
+
+    //chains padded up to a multiple of the kernel's lanes (the padding lanes are all zero, and
+    //stay that way)
+    private static int lanesFor(int count, MatVecKernel kernel){
+        return (count + kernel.lanes() - 1) / kernel.lanes() * kernel.lanes();
+    }
+
+
+    //the dense matrices of chains[lanes[0..used)], interleaved width wide
+    private static double[] interleave(List<MonopolyMarkov> chains, int[] lanes, int used, int width){
+        int s = chains.get(0).states;
+        double[] matrices = new double[s * s * width];
+        for(int k = 0; k < used; ++k){
+            double[] matrix = chains.get(lanes[k]).dense();
+            for(int e = 0; e < s * s; ++e){
+                matrices[e * width + k] = matrix[e];
+            }
+        }
+        return matrices;
+    }
+
+
+    //L1 change over all states of chain k between two interleaved distributions
+    private static double change(double[] pi, double[] previous, int width, int k, int states){
+        double change = 0.0;
+        for(int state = 0; state < states; ++state){
+            change += Math.abs(pi[state * width + k] - previous[state * width + k]);
+        }
+        return change;
+    }
+
+
+    //squareOdds() for chain k of an interleaved distribution width chains wide
+    private static double[] batchOdds(double[] pi, int width, int k, double[] odds){
+        for(int square = 0; square < odds.length; ++square){
+            odds[square] = pi[state(square, 0) * width + k] + pi[state(square, 1) * width + k] + pi[state(square, 2) * width + k];
+        }
+        return odds;
+    }
+
+
+    //stationary distribution over squares, by gauss-seidel with over-relaxation factor omega
+    //(1.0 = plain gauss-seidel) on the sparse form of the chain. Solves pi = pi * P one state at a
+    //time, always using the newest values:
+    //    pi[j] = sum over i != j of (P[i][j] * pi[i]) / (1 - P[j][j])
+    //then renormalizes. Stops once the residual |pi - pi * P| (L1) is below tolerance - the
+    //change between sweeps alone can stall at a non-stationary point when over-relaxing. omega
+    //above 1 speeds some boards up but doesn't converge on all of them; 1.0 is the safe choice
+    double[] solveSparse(double tolerance, int maxIterations, double omega){
+        return solveSparse(new ConvergenceMonitor(tolerance), maxIterations, omega);
+    }
+
+
+    //same as above, but monitor decides when to stop (and keeps the convergence trace)
+    double[] solveSparse(ConvergenceMonitor monitor, int maxIterations, double omega){
+        if(omega <= 0.0 || omega >= 2.0){
+            throw new IllegalArgumentException("omega must be in (0, 2): " + omega);
+        }
+        SparseMatrix incoming = SparseMatrix.transposed(this.states, this::addTransitions);
+        int[] rowStart = incoming.rowStart;
+        int[] cols = incoming.cols;
+        double[] values = incoming.values;
+        double[] diagonal = incoming.diagonal;
+        int s = this.states;
+        double[] pi = new double[s];
+        double[] odds = new double[this.board.numOfSquares];
+        Arrays.fill(pi, 1.0 / s);
+        this.iterations = 0;
+        boolean done = false;
+        while(!done && this.iterations < maxIterations){
+            double total = 0.0;
+            for(int j = 0; j < s; ++j){
+                double sum = 0.0;
+                for(int k = rowStart[j]; k < rowStart[j + 1]; ++k){
+                    sum += values[k] * pi[cols[k]];
+                }
+                double value = (1.0 - omega) * pi[j] + omega * sum / (1.0 - diagonal[j]);
+                pi[j] = value;
+                total += value;
+            }
+            for(int j = 0; j < s; ++j){
+                pi[j] /= total;
+            }
+            double residual = 0.0;
+            for(int j = 0; j < s; ++j){
+                double sum = diagonal[j] * pi[j];
+                for(int k = rowStart[j]; k < rowStart[j + 1]; ++k){
+                    sum += values[k] * pi[cols[k]];
+                }
+                residual += Math.abs(sum - pi[j]);
+            }
+            this.iterations++;
+            done = monitor.iterate(squareOdds(pi, odds), residual);
+        }
+        return squareOdds(pi, new double[this.board.numOfSquares]);
+    }
+
+
+    //collapses a distribution over states into one over squares (written to odds, returned)
+    double[] squareOdds(double[] pi, double[] odds){
+        for(int square = 0; square < odds.length; ++square){
+            odds[square] = pi[state(square, 0)] + pi[state(square, 1)] + pi[state(square, 2)];
+        }
+        return odds;
+    }
+}
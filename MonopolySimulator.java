@@ -0,0 +1,338 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/* Monte Carlo simulator for the odds of finishing a roll on each square.
+
+Plays the game roll by roll (the same "turn" the markov chain uses: a double carries on to another
+roll) and counts where every roll finishes. Each worker thread owns everything it touches on the
+hot path: a SplittableRandom split off one root generator, its own shuffled chance and community
+chest decks (drawn in order and cycled, like the real game), and a primitive long[] visit
+histogram. Nothing is shared until the workers finish and their histograms are added together, so
+there is no contention no matter how many threads run.
+
+runUntilStable() plays in rounds instead of one fixed run: every round each worker carries on its
+own game for a batch of rolls, and the batches go to a ConvergenceMonitor, which stops the run once
+the requested accuracy (or a settled top-k ranking) is reached. */
+
+
+class MonopolySimulator {
+
+    //card codes. Chance decks also hold the "Advance to" targets as codes TARGET + k
+    private static final int STAY = 0;
+    private static final int GO = 1;
+    private static final int JAIL = 2;
+    private static final int NEXT_RR = 3;
+    private static final int NEXT_UT = 4;
+    private static final int BACK_3 = 5;
+    private static final int TARGET = 6;
+
+    private final MonopolyBoard board;
+    private final int numOfDice;
+    private final int diceSides;
+    private final boolean[] isChance;
+    private final boolean[] isChest;
+
+
+    MonopolySimulator(MonopolyBoard board, int diceSides){
+        this(board, 2, diceSides);
+    }
+
+
+    //simulator for any number of dice (doubles = every die showing the same face)
+    MonopolySimulator(MonopolyBoard board, int numOfDice, int diceSides){
+        this.board = board;
+        this.numOfDice = numOfDice;
+        this.diceSides = diceSides;
+        this.isChance = new boolean[board.numOfSquares];
+        this.isChest = new boolean[board.numOfSquares];
+        for(int ch : board.chanceSquares){
+            this.isChance[ch] = true;
+        }
+        for(int cc : board.chestSquares){
+            this.isChest[cc] = true;
+        }
+    }
+
+
+    //outcome of one run: merged visit counts and how long it took
+    static final class Result {
+        final long[] visits;    //visits[i] = rolls that finished on square i
+        final long turns;
+        final int threads;
+        final long nanos;
+
+        Result(long[] visits, long turns, int threads, long nanos){
+            this.visits = visits;
+            this.turns = turns;
+            this.threads = threads;
+            this.nanos = nanos;
+        }
+
+        //visit counts as probabilities
+        double[] odds(){
+            double[] odds = new double[this.visits.length];
+            for(int i = 0; i < odds.length; ++i){
+                odds[i] = this.visits[i] / (double)this.turns;
+            }
+            return odds;
+        }
+
+        double turnsPerSecond(){
+            return this.turns / (this.nanos / 1e9);
+        }
+    }
+
+
+    //simulates turns rolls split across threads workers. Runs with the same seed and thread count
+    //are reproducible
+    Result run(long turns, int threads, long seed){
+        if(threads < 1){
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Worker> workers = new ArrayList<Worker>();
+        for(int t = 0; t < threads; ++t){
+            workers.add(new Worker(root.split()));
+        }
+        long start = System.nanoTime();
+        long[] visits = new long[this.board.numOfSquares];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try{
+            for(long[] histogram : playRound(pool, workers, turns)){
+                for(int i = 0; i < visits.length; ++i){
+                    visits[i] += histogram[i];
+                }
+            }
+        }
+        finally{
+            pool.shutdown();
+        }
+        return new Result(visits, turns, threads, System.nanoTime() - start);
+    }
+
+
+    //plays rounds of turnsPerRound rolls (split across threads workers, each continuing its own
+    //game) until monitor reports convergence or maxTurns rolls have been played. Every worker's
+    //share of a round is one batch for the monitor
+    Result runUntilStable(ConvergenceMonitor monitor, int threads, long turnsPerRound, long maxTurns, long seed){
+        if(threads < 1){
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Worker> workers = new ArrayList<Worker>();
+        for(int t = 0; t < threads; ++t){
+            workers.add(new Worker(root.split()));
+        }
+        long start = System.nanoTime();
+        long[] visits = new long[this.board.numOfSquares];
+        long played = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try{
+            boolean done = false;
+            while(!done && played < maxTurns){
+                long round = Math.min(turnsPerRound, maxTurns - played);
+                List<long[]> parts = playRound(pool, workers, round);
+                for(int t = 0; t < parts.size(); ++t){
+                    long[] histogram = parts.get(t);
+                    monitor.addBatch(histogram, share(round, threads, t));
+                    for(int i = 0; i < visits.length; ++i){
+                        visits[i] += histogram[i];
+                    }
+                }
+                played += round;
+                done = monitor.endRound();
+            }
+        }
+        finally{
+            pool.shutdown();
+        }
+        return new Result(visits, played, threads, System.nanoTime() - start);
+    }
+
+
+    //each worker plays its share of turns on the pool; returns their histograms in worker order
+    private List<long[]> playRound(ExecutorService pool, List<Worker> workers, long turns){
+        try{
+            List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+            for(int t = 0; t < workers.size(); ++t){
+                Worker worker = workers.get(t);
+                long share = share(turns, workers.size(), t);
+                futures.add(pool.submit(() -> worker.play(share)));
+            }
+            List<long[]> parts = new ArrayList<long[]>();
+            for(Future<long[]> future : futures){
+                parts.add(future.get());
+            }
+            return parts;
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("simulation interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IllegalStateException("simulation failed", e.getCause());
+        }
+    }
+
+
+    //worker t's part of turns rolls split over threads workers
+    private static long share(long turns, int threads, int t){
+        return turns / threads + (t < turns % threads ? 1 : 0);
+    }
+
+
+    //one worker's game: its own random, decks and position, carried from one round to the next
+    private final class Worker {
+        private final SplittableRandom random;
+        private final int[] chanceDeck;
+        private final int[] chestDeck;
+        private int nextChance;
+        private int nextChest;
+        private int square;
+        private int doubles;
+
+        Worker(SplittableRandom random){
+            this.random = random;
+            this.chanceDeck = shuffledChance(random);
+            this.chestDeck = shuffledChest(random);
+            this.square = board.go < 0 ? 0 : board.go;
+        }
+
+        //plays turns more rolls, returns where they finished (a fresh histogram)
+        long[] play(long turns){
+            MonopolyBoard b = board;
+            SplittableRandom random = this.random;
+            int[] chanceDeck = this.chanceDeck;
+            int[] chestDeck = this.chestDeck;
+            long[] visits = new long[b.numOfSquares];
+            int nextChance = this.nextChance;
+            int nextChest = this.nextChest;
+            int square = this.square;
+            int doubles = this.doubles;
+            for(long turn = 0; turn < turns; ++turn){
+                int first = random.nextInt(diceSides) + 1;
+                int roll = first;
+                boolean same = numOfDice > 1;
+                for(int die = 1; die < numOfDice; ++die){
+                    int face = random.nextInt(diceSides) + 1;
+                    roll += face;
+                    same &= face == first;
+                }
+                boolean sent = false;
+                if(same && ++doubles == 3){
+                    sent = true;
+                }
+                else{
+                    if(!same){
+                        doubles = 0;
+                    }
+                    square = (square + roll) % b.numOfSquares;
+                    if(isChance[square]){
+                        int card = chanceDeck[nextChance];
+                        nextChance = (nextChance + 1) % chanceDeck.length;
+                        if(card == JAIL){
+                            sent = true;
+                        }
+                        else if(card != STAY){
+                            square = move(card, square);
+                        }
+                    }
+                    if(square == b.g2J){
+                        sent = true;
+                    }
+                    else if(isChest[square] && !sent){
+                        int card = chestDeck[nextChest];
+                        nextChest = (nextChest + 1) % chestDeck.length;
+                        if(card == JAIL){
+                            sent = true;
+                        }
+                        else if(card == GO && b.go >= 0){
+                            square = b.go;
+                        }
+                    }
+                }
+                if(sent && b.jail >= 0){
+                    square = b.jail;
+                    doubles = 0;
+                }
+                visits[square]++;
+            }
+            this.nextChance = nextChance;
+            this.nextChest = nextChest;
+            this.square = square;
+            this.doubles = doubles;
+            return visits;
+        }
+    }
+
+
+    //destination of a (non-jail, non-stay) chance card drawn on square. Cards that point at a
+    //square the board doesn't have (-1) leave the token where it is, as in MonopolyBoard.resolve()
+    private int move(int card, int square){
+        int dest;
+        switch(card){
+            case GO:
+                dest = this.board.go;
+                break;
+            case NEXT_RR:
+                dest = this.board.nextRailroad[square];
+                break;
+            case NEXT_UT:
+                dest = this.board.nextUtility[square];
+                break;
+            case BACK_3:
+                dest = this.board.back3[square];
+                break;
+            default:
+                dest = this.board.chanceTargets[card - TARGET];
+                break;
+        }
+        return dest < 0 ? square : dest;
+    }
+
+
+    //chance deck: go, jail, each "Advance to" target, 2x next railroad, next utility, back 3
+    private int[] shuffledChance(SplittableRandom random){
+        int[] deck = new int[this.board.numOfCards];
+        int next = 0;
+        deck[next++] = GO;
+        deck[next++] = JAIL;
+        for(int k = 0; k < this.board.chanceTargets.length; ++k){
+            deck[next++] = TARGET + k;
+        }
+        deck[next++] = NEXT_RR;
+        deck[next++] = NEXT_RR;
+        deck[next++] = NEXT_UT;
+        deck[next++] = BACK_3;
+        //the rest are STAY (0)
+        shuffle(deck, random);
+        return deck;
+    }
+
+
+    //community chest deck: go, jail, the rest stay
+    private int[] shuffledChest(SplittableRandom random){
+        int[] deck = new int[this.board.numOfCards];
+        deck[0] = GO;
+        deck[1] = JAIL;
+        shuffle(deck, random);
+        return deck;
+    }
+
+
+    //fisher-yates shuffle
+    private static void shuffle(int[] deck, SplittableRandom random){
+        for(int i = deck.length - 1; i > 0; --i){
+            int j = random.nextInt(i + 1);
+            int swap = deck[i];
+            deck[i] = deck[j];
+            deck[j] = swap;
+        }
+    }
+}
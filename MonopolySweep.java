@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+
+/* Parallel parameter sweep: the modal string of every (board layout, dice size) pair.
+
+Every configuration is an independent markov solve, so they are spread over a fixed-size thread
+pool and results are handed out as each one finishes, not in submission order. Layouts are
+MonopolyBoard instances, which already hold everything that doesn't depend on the dice (card
+destination and landing tables), so one board is built once and shared read-only by all of its
+dice sizes. Each task only builds its own dice-dependent transitions. layouts() makes any number of
+alternative layouts from one board (its special squares moved around at random, reproducibly).
+
+By default every configuration is its own sparse gauss-seidel solve. Batched, the dice sizes of a
+layout are split into one group per thread instead, and each group is solved as dense chains in
+lockstep (MonopolyMarkov.solveBatch()): one SIMD-friendly pass over the interleaved matrices of
+the whole group per step, rather than one pass per configuration. */
+
+
+class MonopolySweep {
+
+    //one finished configuration
+    static final class Result {
+        final int layout;           //index into the list of layouts
+        final int diceSides;
+        final double[] odds;        //stationary odds per square
+        final String modalString;   //labels of the 3 most likely squares, concatenated
+
+        Result(int layout, int diceSides, double[] odds, String modalString){
+            this.layout = layout;
+            this.diceSides = diceSides;
+            this.odds = odds;
+            this.modalString = modalString;
+        }
+    }
+
+    private final int threads;
+    private final int numOfDice;        //dice rolled per turn, for every configuration
+    private final double tolerance;
+    private final boolean batched;      //dense batches per group of dice sizes instead of sparse solves
+
+
+    //sweep with two dice, one sparse solve per configuration
+    MonopolySweep(int threads, double tolerance){
+        this(threads, 2, tolerance, false);
+    }
+
+
+    MonopolySweep(int threads, int numOfDice, double tolerance, boolean batched){
+        if(threads < 1){
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+        this.numOfDice = numOfDice;
+        this.tolerance = tolerance;
+        this.batched = batched;
+    }
+
+
+    //base itself, then count - 1 shuffled versions of it (see MonopolyBoard.shuffle()). The same
+    //seed always gives the same layouts
+    static List<MonopolyBoard> layouts(MonopolyBoard base, int count, long seed){
+        List<MonopolyBoard> layouts = new ArrayList<MonopolyBoard>();
+        layouts.add(base);
+        SplittableRandom random = new SplittableRandom(seed);
+        for(int i = 1; i < count; ++i){
+            layouts.add(base.shuffle(random));
+        }
+        return layouts;
+    }
+
+
+    //solves every layout for every dice size in [minSides, maxSides] on the pool, calling sink (on
+    //this thread) with each result as soon as it is done (a whole group at a time, if batched).
+    //Returns once all of them are done
+    void run(List<MonopolyBoard> layouts, int minSides, int maxSides, Consumer<Result> sink){
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        try{
+            CompletionService<List<Result>> done = new ExecutorCompletionService<List<Result>>(pool);
+            int submitted = 0;
+            if(this.batched){
+                int sizes = maxSides - minSides + 1;
+                int groups = Math.max(1, Math.min(this.threads, sizes));
+                for(int layout = 0; layout < layouts.size(); ++layout){
+                    for(int g = 0; g < groups; ++g){
+                        int l = layout;
+                        int from = minSides + (int)((long)sizes * g / groups);
+                        int to = minSides + (int)((long)sizes * (g + 1) / groups) - 1;
+                        MonopolyBoard board = layouts.get(layout);
+                        done.submit(() -> solveBatch(l, board, from, to));
+                        submitted++;
+                    }
+                }
+            }
+            else{
+                for(int sides = minSides; sides <= maxSides; ++sides){
+                    for(int layout = 0; layout < layouts.size(); ++layout){
+                        int l = layout;
+                        int s = sides;
+                        MonopolyBoard board = layouts.get(layout);
+                        done.submit(() -> Collections.singletonList(solve(l, board, s)));
+                        submitted++;
+                    }
+                }
+            }
+            for(int i = 0; i < submitted; ++i){
+                for(Result result : done.take().get()){
+                    sink.accept(result);
+                }
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sweep interrupted", e);
+        }
+        catch(ExecutionException e){
+            throw new IllegalStateException("sweep failed", e.getCause());
+        }
+        finally{
+            pool.shutdownNow();
+        }
+    }
+
+
+    //one configuration
+    private Result solve(int layout, MonopolyBoard board, int sides){
+        double[] odds = new MonopolyMarkov(board, this.numOfDice, sides).solveSparse(this.tolerance, 100000, 1.0);
+        return result(layout, board, sides, odds);
+    }
+
+
+    //dice sizes [fromSides, toSides] of one layout as one dense batch
+    private List<Result> solveBatch(int layout, MonopolyBoard board, int fromSides, int toSides){
+        List<MonopolyMarkov> chains = new ArrayList<MonopolyMarkov>();
+        for(int sides = fromSides; sides <= toSides; ++sides){
+            chains.add(new MonopolyMarkov(board, this.numOfDice, sides));
+        }
+        double[][] odds = MonopolyMarkov.solveBatch(chains, this.tolerance, 1000000, MatVecKernel.best());
+        List<Result> results = new ArrayList<Result>();
+        for(int k = 0; k < odds.length; ++k){
+            results.add(result(layout, board, fromSides + k, odds[k]));
+        }
+        return results;
+    }
+
+
+    private static Result result(int layout, MonopolyBoard board, int sides, double[] odds){
+        StringBuilder modal = new StringBuilder();
+        for(int square : Monopoly.topSquares(odds, 3)){
+            modal.append(board.label(square));
+        }
+        return new Result(layout, sides, odds, modal.toString());
+    }
+}
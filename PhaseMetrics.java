@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+
+/* Per-phase timing and allocation numbers for ConsecutivePrimes and Monopoly.
+
+A phase is a named stretch of work (findPrimes, findConSum, handleCH, ...), wrapped in a
+try-with-resources block:
+
+    try(PhaseMetrics.Phase phase = this.metrics.start("findPrimes")){
+        ...
+        phase.items(count);     //optional: how many things the phase produced / went through
+    }
+
+Each finished phase records its wall time, the CPU time and heap bytes allocated by the calling
+thread (from ThreadMXBean - work handed to other threads, like a parallel sieve's ForkJoinPool,
+shows up in wall time only), its item count and how deeply it is nested in other phases. The
+records can be written out as JSON, and every phase is also committed as a JFR event
+(PhaseMetrics.Phase), so phases line up with GC and allocation events in a flight recording.
+
+DISABLED is the default everywhere: its start() hands back one shared no-op phase without
+reading any clock or counter, so instrumented code pays a call and a branch per phase.
+Recording is single threaded - one PhaseMetrics per run. */
+
+
+public class PhaseMetrics{
+
+    //records nothing, costs (almost) nothing
+    public static final PhaseMetrics DISABLED = new PhaseMetrics(false);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATION =
+            THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean)THREADS : null;
+
+    private final boolean enabled;
+    private final List<Record> records;
+    private final Phase off;            //the one phase DISABLED hands out
+    private int depth;                  //number of phases currently open
+
+
+    //an enabled recorder
+    public PhaseMetrics(){
+        this(true);
+    }
+
+
+    private PhaseMetrics(boolean enabled){
+        this.enabled = enabled;
+        this.records = new ArrayList<Record>();
+        this.off = enabled ? null : new Phase(this, null);
+    }
+
+
+    //recorder for a run: enabled if the "metrics" system property is set (to the file the JSON
+    //should go to, see writeJson()), DISABLED otherwise
+    public static PhaseMetrics fromSystemProperty(){
+        return System.getProperty("metrics") == null ? DISABLED : new PhaseMetrics();
+    }
+
+
+    public boolean isEnabled(){
+        return this.enabled;
+    }
+
+
+    //opens a phase. Close it (try-with-resources) when the work is done
+    public Phase start(String name){
+        if(!this.enabled){
+            return this.off;
+        }
+        return new Phase(this, name);
+    }
+
+
+    //every phase finished so far, in the order they finished (nested phases before their parent)
+    public List<Record> records(){
+        return Collections.unmodifiableList(this.records);
+    }
+
+
+    //the records as a JSON array of objects, one per phase
+    public String toJson(){
+        StringBuilder json = new StringBuilder("[");
+        for(int i = 0; i < this.records.size(); ++i){
+            Record r = this.records.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("  {\"phase\": \"").append(r.name.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\", \"depth\": ").append(r.depth)
+                .append(", \"wallNanos\": ").append(r.wallNanos)
+                .append(", \"cpuNanos\": ").append(r.cpuNanos)
+                .append(", \"allocatedBytes\": ").append(r.allocatedBytes)
+                .append(", \"items\": ").append(r.items)
+                .append('}');
+        }
+        return json.append(this.records.isEmpty() ? "]\n" : "\n]\n").toString();
+    }
+
+
+    //writes toJson() to file. "-" prints it to the console instead
+    public void writeJson(String file) throws IOException{
+        if(file.equals("-")){
+            System.out.print(toJson());
+        }
+        else{
+            Files.write(Path.of(file), toJson().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+
+    //writes the JSON to the file named by the "metrics" system property, if this recorder is
+    //enabled and the property is set. Failures are reported, not thrown - metrics never end a run
+    public void writeJsonIfRequested(){
+        String file = System.getProperty("metrics");
+        if(!this.enabled || file == null){
+            return;
+        }
+        try{
+            writeJson(file);
+        }
+        catch(IOException e){
+            System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+        }
+    }
+
+
+    //cpu time of the calling thread, -1 if the JVM can't measure it
+    private static long cpuNow(){
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+
+    //bytes allocated so far by the calling thread, -1 if the JVM can't measure it
+    private static long allocatedNow(){
+        return ALLOCATION != null && ALLOCATION.isThreadAllocatedMemoryEnabled() ? ALLOCATION.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+
+    //one finished phase. cpuNanos / allocatedBytes are -1 where the JVM doesn't support them
+    public static final class Record{
+        public final String name;
+        public final int depth;             //0 = top level
+        public final long wallNanos;
+        public final long cpuNanos;
+        public final long allocatedBytes;
+        public final long items;            //-1 if the phase didn't report a count
+
+        Record(String name, int depth, long wallNanos, long cpuNanos, long allocatedBytes, long items){
+            this.name = name;
+            this.depth = depth;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.items = items;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%s: %.3f ms wall, %.3f ms cpu, %d bytes, %d items", this.name,
+                    this.wallNanos / 1e6, this.cpuNanos / 1e6, this.allocatedBytes, this.items);
+        }
+    }
+
+
+    //an open phase. Closing it records it (closing twice, or closing DISABLED's phase, does nothing)
+    public static final class Phase implements AutoCloseable{
+        private final PhaseMetrics owner;
+        private final String name;
+        private final int depth;
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocatedStart;
+        private final PhaseEvent event;
+        private long items = -1;
+        private boolean closed;
+
+        private Phase(PhaseMetrics owner, String name){
+            this.owner = owner;
+            this.name = name;
+            if(name == null){
+                //the shared no-op phase
+                this.depth = 0;
+                this.wallStart = this.cpuStart = this.allocatedStart = 0;
+                this.event = null;
+                this.closed = true;
+                return;
+            }
+            this.depth = owner.depth++;
+            this.event = new PhaseEvent();
+            this.event.begin();
+            this.allocatedStart = allocatedNow();
+            this.cpuStart = cpuNow();
+            this.wallStart = System.nanoTime();
+        }
+
+        //sets the phase's item count
+        public void items(long items){
+            this.items = items;
+        }
+
+        @Override
+        public void close(){
+            if(this.closed){
+                return;
+            }
+            long wall = System.nanoTime() - this.wallStart;
+            long cpu = this.cpuStart < 0 ? -1 : cpuNow() - this.cpuStart;
+            long allocated = this.allocatedStart < 0 ? -1 : allocatedNow() - this.allocatedStart;
+            this.closed = true;
+            this.owner.depth--;
+            this.owner.records.add(new Record(this.name, this.depth, wall, cpu, allocated, this.items));
+            this.event.end();
+            if(this.event.shouldCommit()){
+                this.event.phase = this.name;
+                this.event.depth = this.depth;
+                this.event.cpuTime = cpu;
+                this.event.allocated = allocated;
+                this.event.items = this.items;
+                this.event.commit();
+            }
+        }
+    }
+
+
+    //JFR view of a finished phase (the event's own duration is the wall time)
+    @Name("PhaseMetrics.Phase")
+    @Label("Phase")
+    @Category("Java Projects")
+    @Description("A named phase of a ConsecutivePrimes or Monopoly run")
+    static final class PhaseEvent extends Event{
+        @Label("Phase")
+        String phase;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("CPU Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long cpuTime;
+
+        @Label("Allocated")
+        @DataAmount(DataAmount.BYTES)
+        long allocated;
+
+        @Label("Items")
+        long items;
+    }
+}
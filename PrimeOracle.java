@@ -0,0 +1,134 @@
+import java.util.function.LongPredicate;
+
+
+/* Primality oracle used by the consecutive-sum search.
+
+Values inside the sieved range are answered in O(1) straight from the WheelSieve table. Anything
+above it (up to Long.MAX_VALUE) falls back to Miller-Rabin with the first 12 primes as bases, which
+is deterministic for every n < 3.3 * 10^24. The modular arithmetic is done in Montgomery form with
+Math.multiplyHigh, so no check ever allocates (no BigInteger, no boxing). */
+
+
+public class PrimeOracle implements LongPredicate{
+
+    //witnesses that make Miller-Rabin deterministic for all 64-bit inputs
+    private static final long[] BASES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+    private final WheelSieve wheel;     //may be null, in which case every check uses Miller-Rabin
+    private final long sievedLimit;     //largest value the sieve can answer
+
+
+    //no table at all: every check uses Miller-Rabin
+    public PrimeOracle(){
+        this.wheel = null;
+        this.sievedLimit = -1;
+    }
+
+
+    public PrimeOracle(WheelSieve wheel){
+        this.wheel = wheel;
+        this.sievedLimit = wheel.getLimit();
+    }
+
+
+    //true if n is prime (negative values are never prime)
+    public boolean isPrime(long n){
+        if(n <= this.sievedLimit){
+            return n >= 0 && this.wheel.isPrime(n);
+        }
+        return millerRabin(n);
+    }
+
+
+    @Override
+    public boolean test(long n){
+        return isPrime(n);
+    }
+
+
+    //deterministic Miller-Rabin for any long
+    public static boolean millerRabin(long n){
+        if(n < 2){
+            return false;
+        }
+        for(long p : BASES){
+            if(n % p == 0){
+                return n == p;
+            }
+        }
+        //n is odd and > 37 from here on: write n - 1 = d * 2^s with d odd
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+
+        //montgomery setup: nPrime = -n^-1 mod 2^64, one = 2^64 mod n, r2 = 2^128 mod n
+        long inv = n;
+        for(int i = 0; i < 5; ++i){
+            inv *= 2 - n * inv;
+        }
+        long nPrime = -inv;
+        long one = Long.remainderUnsigned(-1L, n) + 1;
+        long r2 = one;
+        for(int i = 0; i < 64; ++i){
+            r2 = addMod(r2, r2, n);
+        }
+        long minusOne = n - one;
+
+        for(long a : BASES){
+            long x = powMont(mulMont(a, r2, n, nPrime), d, one, n, nPrime);
+            if(x == one || x == minusOne){
+                continue;
+            }
+            boolean witness = true;
+            for(int i = 1; i < s; ++i){
+                x = mulMont(x, x, n, nPrime);
+                if(x == minusOne){
+                    witness = false;
+                    break;
+                }
+            }
+            if(witness){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    //base^e in montgomery form (base and result are both montgomery representations)
+    private static long powMont(long base, long e, long one, long n, long nPrime){
+        long result = one;
+        while(e != 0){
+            if((e & 1) != 0){
+                result = mulMont(result, base, n, nPrime);
+            }
+            base = mulMont(base, base, n, nPrime);
+            e >>>= 1;
+        }
+        return result;
+    }
+
+
+    //montgomery product a * b * 2^-64 mod n, for a, b < n < 2^63
+    private static long mulMont(long a, long b, long n, long nPrime){
+        long hi = unsignedMultiplyHigh(a, b);
+        long lo = a * b;
+        long m = lo * nPrime;
+        //lo + low half of m*n is 0 mod 2^64, and it carries exactly when lo != 0
+        long t = hi + unsignedMultiplyHigh(m, n) + (lo != 0 ? 1 : 0);
+        return Long.compareUnsigned(t, n) >= 0 ? t - n : t;
+    }
+
+
+    //(a + b) mod n for a, b < n < 2^63 - the sum may wrap into the sign bit, which is fine unsigned
+    private static long addMod(long a, long b, long n){
+        long sum = a + b;
+        return (sum < 0 || sum >= n) ? sum - n : sum;
+    }
+
+
+    //high 64 bits of the unsigned 128-bit product a * b
+    private static long unsignedMultiplyHigh(long a, long b){
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+}
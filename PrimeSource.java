@@ -0,0 +1,247 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+
+/* Lazy, streaming source of primes, produced one sieve segment at a time.
+
+Unlike WheelSieve, nothing is sieved up front and no table is kept: each segment (a window of
+SEGMENT_BITS odd numbers) is sieved, handed out in order, and dropped. Memory stays
+bounded by a few segments no matter how far the source runs.
+
+In background mode a daemon thread sieves ahead of the consumer into a small bounded queue, so a
+consumer can work on the first segments while later ones are still being sieved. The limit can be
+raised at any time with extendTo(); sieving simply continues from where it stopped, nothing is
+sieved twice. The base primes are grown as needed, so limits are only bounded by the memory the
+base primes take (sqrt(limit) bytes for the small sieve). */
+
+
+public class PrimeSource implements PrimitiveIterator.OfLong, AutoCloseable{
+
+    //odd numbers per segment: 2^18 bits = 32KB, about the size of a typical L1 data cache
+    private static final int SEGMENT_BITS = 1 << 18;
+
+    //segments the background thread may sieve ahead of the consumer
+    private static final int QUEUE_SEGMENTS = 4;
+
+    private final boolean background;
+    private final BlockingQueue<Segment> queue;
+    private Thread producer;
+
+    //producer state (only touched by the producer thread in background mode)
+    private long nextLow;               //first value of the next segment to sieve
+    private int[] basePrimes;           //odd primes up to baseLimit
+    private long baseLimit;
+    private final long[] bits;          //reusable segment table, set bit = composite
+
+    //shared state
+    private volatile long limit;        //largest value this source will produce
+    private volatile boolean closed;
+
+    //consumer state
+    private long[] current;             //primes of the segment being consumed
+    private int position;               //next prime to hand out from current
+    private long consumedUpTo;          //largest value covered by the segments taken so far
+
+
+    //source of every prime up to limit. With background = true, segments are sieved ahead of
+    //the consumer on a daemon thread; otherwise each segment is sieved when it is first needed
+    public PrimeSource(long limit, boolean background){
+        this.limit = limit;
+        this.background = background;
+        this.queue = new ArrayBlockingQueue<Segment>(QUEUE_SEGMENTS);
+        this.nextLow = 0;
+        this.basePrimes = new int[0];
+        this.baseLimit = 0;
+        this.bits = new long[SEGMENT_BITS >>> 6];
+        this.current = new long[0];
+        this.consumedUpTo = -1;
+    }
+
+
+    //largest value this source will produce
+    public long getLimit(){
+        return this.limit;
+    }
+
+
+    //raises the limit. Primes up to the old limit are not sieved again
+    public synchronized void extendTo(long newLimit){
+        if(newLimit > this.limit){
+            this.limit = newLimit;
+            notifyAll();
+        }
+    }
+
+
+    @Override
+    public boolean hasNext(){
+        while(this.position == this.current.length){
+            if(this.consumedUpTo >= this.limit){
+                return false;
+            }
+            Segment next = this.background ? takeSegment() : sieveNext();
+            this.current = next.primes;
+            this.position = 0;
+            this.consumedUpTo = next.high;
+        }
+        return true;
+    }
+
+
+    @Override
+    public long nextLong(){
+        if(!hasNext()){
+            throw new NoSuchElementException();
+        }
+        return this.current[this.position++];
+    }
+
+
+    //the remaining primes as an ordered, sequential stream
+    public LongStream stream(){
+        Spliterator.OfLong split = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.longStream(split, false);
+    }
+
+
+    //stops the background thread (if any)
+    @Override
+    public synchronized void close(){
+        this.closed = true;
+        notifyAll();
+        if(this.producer != null){
+            this.producer.interrupt();
+        }
+    }
+
+
+    //takes the next segment from the background thread, starting it on first use
+    private Segment takeSegment(){
+        synchronized(this){
+            if(this.closed){
+                throw new IllegalStateException("prime source is closed");
+            }
+            if(this.producer == null){
+                this.producer = new Thread(this::produce, "prime-source");
+                this.producer.setDaemon(true);
+                this.producer.start();
+            }
+        }
+        try{
+            return this.queue.take();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for primes", e);
+        }
+    }
+
+
+    //background thread: sieves segments ahead of the consumer until closed
+    private void produce(){
+        try{
+            while(!this.closed){
+                synchronized(this){
+                    while(this.nextLow > this.limit && !this.closed){
+                        wait();
+                    }
+                }
+                if(!this.closed){
+                    this.queue.put(sieveNext());
+                }
+            }
+        }
+        catch(InterruptedException e){
+            //closed
+        }
+    }
+
+
+    //sieves the next segment: SEGMENT_BITS odd numbers starting at nextLow, cut off at limit
+    private Segment sieveNext(){
+        long low = this.nextLow;
+        long high = Math.min(low + 2L * SEGMENT_BITS - 1, this.limit);
+        this.nextLow = high + 1;
+        growBasePrimes(high);
+
+        long firstOdd = low | 1;
+        int n = high < firstOdd ? 0 : (int)((high - firstOdd) / 2 + 1);   //odd values in segment
+        int words = (n + 63) >>> 6;
+        Arrays.fill(this.bits, 0, words, 0L);
+        for(int p : this.basePrimes){
+            long square = (long)p * p;
+            if(square > high){
+                break;
+            }
+            long start = Math.max(square, (firstOdd + p - 1) / p * p);
+            if((start & 1) == 0){
+                start += p;
+            }
+            for(long j = (start - firstOdd) >>> 1; j < n; j += p){
+                this.bits[(int)(j >>> 6)] |= 1L << j;
+            }
+        }
+        if(firstOdd == 1 && n > 0){
+            this.bits[0] |= 1L;     //1 is not prime
+        }
+
+        boolean withTwo = low <= 2 && high >= 2;
+        int count = withTwo ? 1 : 0;
+        for(int w = 0; w < words; ++w){
+            long word = ~this.bits[w];
+            if(w == words - 1 && (n & 63) != 0){
+                word &= (1L << n) - 1;
+            }
+            count += Long.bitCount(word);
+        }
+        long[] primes = new long[count];
+        int next = 0;
+        if(withTwo){
+            primes[next++] = 2;
+        }
+        for(int w = 0; w < words; ++w){
+            long word = ~this.bits[w];
+            if(w == words - 1 && (n & 63) != 0){
+                word &= (1L << n) - 1;
+            }
+            while(word != 0){
+                long index = ((long)w << 6) + Long.numberOfTrailingZeros(word);
+                primes[next++] = firstOdd + 2 * index;
+                word &= word - 1;
+            }
+        }
+        return new Segment(high, primes);
+    }
+
+
+    //makes sure the base primes reach sqrt(high)
+    private void growBasePrimes(long high){
+        int root = WheelSieve.isqrt(high);
+        if(root > this.baseLimit){
+            //grow geometrically, so extending the limit step by step stays cheap
+            int target = (int)Math.min(Integer.MAX_VALUE - 1, Math.max(root, 2 * this.baseLimit));
+            this.basePrimes = WheelSieve.smallOddPrimes(target);
+            this.baseLimit = target;
+        }
+    }
+
+
+    //one sieved segment: every prime in (previous segment's high, high]
+    private static final class Segment{
+        final long high;
+        final long[] primes;
+
+        Segment(long high, long[] primes){
+            this.high = high;
+            this.primes = primes;
+        }
+    }
+}
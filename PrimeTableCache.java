@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.CRC32;
+
+
+/* On-disk cache of WheelSieve tables, so repeated runs don't have to sieve from scratch.
+
+File layout (little endian):
+    0   int     magic ("PRMS")
+    4   int     format version (2; version 1 held odd-only sieve words)
+    8   long    sieved limit
+    16  long    number of table bytes that follow
+    24  long    CRC32 of the table bytes
+    32  byte[]  the sieve's mod-30 wheel table, exactly as WheelSieve.bytes() holds it
+
+The file is opened with FileChannel.map. If it covers the requested limit, the table is copied
+straight out of the mapping and nothing is sieved. If it is smaller, only the segments past the
+cached limit are sieved and the file is rewritten with the larger table. A file with a bad header
+or checksum (or from another format version) is treated as missing, which rebuilds it. Even a
+table for WheelSieve.MAX_LIMIT stays just under 2GB, so the whole file fits in one mapping. */
+
+
+public class PrimeTableCache{
+
+    private static final int MAGIC = 0x50524D53;   //"PRMS"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+
+    private final Path file;
+
+
+    public PrimeTableCache(Path file){
+        this.file = file;
+    }
+
+
+    //returns a sieve covering limit, reusing (and, if needed, extending) the cached table.
+    //cache problems are never fatal: an unreadable file is rebuilt, an unwritable one is skipped
+    public WheelSieve load(long limit, int parallelism){
+        WheelSieve sieve = null;
+        long cachedLimit = -1;
+        if(Files.isRegularFile(this.file)){
+            try(FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)){
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer table = verify(map);
+                if(table != null){
+                    cachedLimit = map.getLong(8);
+                    sieve = new WheelSieve(limit, parallelism, table, cachedLimit);
+                }
+                else{
+                    System.err.printf("Prime cache %s is corrupt or out of date, rebuilding it.\n", this.file);
+                }
+            }
+            catch(IOException e){
+                System.err.printf("Could not read prime cache %s (%s), rebuilding it.\n", this.file, e.getMessage());
+            }
+        }
+        if(sieve == null){
+            sieve = new WheelSieve(limit, parallelism);
+        }
+        if(sieve.getLimit() > cachedLimit){
+            try{
+                store(sieve);
+            }
+            catch(IOException e){
+                System.err.printf("Could not write prime cache %s (%s).\n", this.file, e.getMessage());
+            }
+        }
+        return sieve;
+    }
+
+
+    //writes sieve to the cache file, replacing whatever was there. The table goes to a temporary
+    //file next to it first, which createTempFile makes owner-only (0600); it is opened up to
+    //rw-r--r--, as any other file the program writes, before it is moved into place
+    public void store(WheelSieve sieve) throws IOException{
+        byte[] table = sieve.bytes();
+        long size = HEADER_BYTES + (long)table.length;
+        Path parent = this.file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, this.file.getFileName().toString(), ".tmp");
+        try{
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                map.order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer data = map.slice(HEADER_BYTES, (int)(size - HEADER_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+                data.put(table);
+                CRC32 crc = new CRC32();
+                crc.update(data.flip());
+                map.putInt(0, MAGIC);
+                map.putInt(4, VERSION);
+                map.putLong(8, sieve.getLimit());
+                map.putLong(16, table.length);
+                map.putLong(24, crc.getValue());
+                map.force();
+            }
+            if(temp.getFileSystem().supportedFileAttributeViews().contains("posix")){
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally{
+            Files.deleteIfExists(temp);
+        }
+    }
+
+
+    //checks header and checksum, returns the table bytes (or null if the file can't be trusted)
+    private static ByteBuffer verify(MappedByteBuffer map){
+        if(map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC || map.getInt(4) != VERSION){
+            return null;
+        }
+        long limit = map.getLong(8);
+        long byteCount = map.getLong(16);
+        if(limit < 2 || limit > WheelSieve.MAX_LIMIT || byteCount != limit / 30 + 1
+                || map.capacity() != HEADER_BYTES + byteCount){
+            return null;
+        }
+        ByteBuffer data = map.slice(HEADER_BYTES, (int)byteCount);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if(crc.getValue() != map.getLong(24)){
+            return null;
+        }
+        return data;
+    }
+}
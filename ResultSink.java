@@ -0,0 +1,59 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.function.IntToLongFunction;
+
+
+/* Where ConsecutivePrimes and Monopoly send their results.
+
+Each kind of result is one call, and each implementation renders all of them in its own format:
+TextResultSink writes what the programs have always printed, CsvResultSink and
+BinaryResultSink write the same results for other programs to read. All of them write through
+a ResultWriter, so output is buffered, encoded without format strings and - optionally - written
+by a background thread while the program gets on with its work.
+
+Results may sit in a buffer until flush() or close(), so flush before printing anything
+to the same stream directly. Sinks are not thread safe. */
+
+
+public interface ResultSink extends AutoCloseable{
+
+    //answer of a consecutive prime sum search: the prime, its number of terms, and the terms
+    //themselves - terms.applyAsLong(startIndex + i) for i below count (none when nothing was
+    //found, although endIndex is then startIndex)
+    void primeSum(long prime, int count, int startIndex, int endIndex, IntToLongFunction terms);
+
+    //probability of finishing a roll on each square of board
+    void odds(MonopolyBoard board, double[] odds);
+
+    //one finished (board layout, dice size) pair of a sweep
+    void sweep(MonopolySweep.Result result);
+
+    //everything so far has been written out when this returns
+    void flush();
+
+    @Override
+    void close();
+
+
+    //text to the console (System.out is flushed, never closed)
+    static ResultSink console(boolean background){
+        return new TextResultSink(new ResultWriter(System.out, false, background));
+    }
+
+
+    //sink for target: null or "-" is the console, a name ending in .csv a CsvResultSink, one
+    //ending in .bin a BinaryResultSink, anything else a text file. Written on a background thread
+    static ResultSink open(String target) throws IOException{
+        if(target == null || target.equals("-")){
+            return console(true);
+        }
+        ResultWriter writer = new ResultWriter(new FileOutputStream(target), true, true);
+        if(target.endsWith(".csv")){
+            return new CsvResultSink(writer);
+        }
+        if(target.endsWith(".bin")){
+            return new BinaryResultSink(writer);
+        }
+        return new TextResultSink(writer);
+    }
+}
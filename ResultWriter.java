@@ -0,0 +1,320 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+
+/* Buffered byte output used by the result sinks.
+
+Text and binary values are encoded straight into a byte[] buffer - longs digit by digit, ASCII
+text char by char - so writing a term or a probability takes no format string, no lock and
+(for longs and text) no allocation. Only a full buffer, or flush(), reaches the stream.
+
+In background mode full buffers are handed to a daemon thread that does the actual writes, and
+the caller carries on filling the next buffer. A fixed set of buffers is recycled between the two
+threads, so a slow stream only ever holds up the caller once every buffer is waiting to be
+written. flush() waits until everything written so far has reached the stream.
+
+Not thread safe: one thread writes, the background thread (if any) only drains. I/O errors are
+thrown as UncheckedIOException - from the call that hit them, or in background mode from the
+next flush() / close(). */
+
+
+final class ResultWriter implements Closeable{
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BUFFERS = 3;       //one being filled, the others queued or being written
+
+    private final OutputStream out;
+    private final boolean closeOut;         //false for System.out, which outlives the writer
+    private final boolean background;
+    private byte[] buffer;
+    private int position;
+    private final byte[] digits;            //scratch for appendLong
+    private final StringBuilder scratch;    //scratch for doubles
+
+    //background mode only
+    private final BlockingQueue<Chunk> queue;
+    private final BlockingQueue<byte[]> free;
+    private Thread writer;
+    private volatile IOException failure;
+    private boolean closed;
+
+
+    //writer over out. closeOut: whether close() closes out too. background: write on a daemon thread
+    ResultWriter(OutputStream out, boolean closeOut, boolean background){
+        this.out = out;
+        this.closeOut = closeOut;
+        this.background = background;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.digits = new byte[20];
+        this.scratch = new StringBuilder();
+        this.queue = background ? new ArrayBlockingQueue<Chunk>(BUFFERS + 1) : null;
+        this.free = background ? new ArrayBlockingQueue<byte[]>(BUFFERS) : null;
+        if(background){
+            for(int i = 1; i < BUFFERS; ++i){
+                this.free.add(new byte[BUFFER_SIZE]);
+            }
+        }
+    }
+
+
+    //text. Chars past ASCII are written as UTF-8
+    ResultWriter append(CharSequence text){
+        for(int i = 0; i < text.length(); ++i){
+            char c = text.charAt(i);
+            if(c < 0x80){
+                put((byte)c);
+            }
+            else{
+                int end = Character.isHighSurrogate(c) && i + 1 < text.length() ? i + 2 : i + 1;
+                for(byte b : text.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)){
+                    put(b);
+                }
+                i = end - 1;
+            }
+        }
+        return this;
+    }
+
+
+    //one ASCII char
+    ResultWriter append(char c){
+        put((byte)c);
+        return this;
+    }
+
+
+    //a long in decimal, same as %d
+    ResultWriter append(long value){
+        if(value == Long.MIN_VALUE){
+            return append(Long.toString(value));
+        }
+        if(value < 0){
+            put((byte)'-');
+            value = -value;
+        }
+        int n = 0;
+        do{
+            this.digits[n++] = (byte)('0' + value % 10);
+            value /= 10;
+        } while(value != 0);
+        while(n > 0){
+            put(this.digits[--n]);
+        }
+        return this;
+    }
+
+
+    //a double with a fixed number of decimals, rounded exactly like %.Nf (half up, from the
+    //shortest decimal form of the double)
+    ResultWriter appendFixed(double value, int decimals){
+        if(Double.isNaN(value) || Double.isInfinite(value)){
+            return append(Double.toString(value));
+        }
+        return append(BigDecimal.valueOf(value).setScale(decimals, RoundingMode.HALF_UP).toPlainString());
+    }
+
+
+    //a double in its shortest round-trip form (Double.toString)
+    ResultWriter append(double value){
+        this.scratch.setLength(0);
+        this.scratch.append(value);
+        return append(this.scratch);
+    }
+
+
+    //big-endian binary values, as DataOutputStream writes them
+    ResultWriter writeInt(int value){
+        put((byte)(value >>> 24));
+        put((byte)(value >>> 16));
+        put((byte)(value >>> 8));
+        put((byte)value);
+        return this;
+    }
+
+
+    ResultWriter writeLong(long value){
+        writeInt((int)(value >>> 32));
+        return writeInt((int)value);
+    }
+
+
+    ResultWriter writeDouble(double value){
+        return writeLong(Double.doubleToLongBits(value));
+    }
+
+
+    ResultWriter writeByte(int value){
+        put((byte)value);
+        return this;
+    }
+
+
+    //everything written so far reaches the stream (and the stream is flushed) before this returns
+    void flush(){
+        if(!this.background){
+            try{
+                this.out.write(this.buffer, 0, this.position);
+                this.out.flush();
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            this.position = 0;
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        handOff(done);
+        try{
+            done.await();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while flushing results", e);
+        }
+        checkFailure();
+    }
+
+
+    //flushes, stops the background thread and closes the stream (unless it's shared)
+    @Override
+    public void close(){
+        if(this.closed){
+            return;
+        }
+        try{
+            flush();
+        }
+        finally{
+            this.closed = true;
+            if(this.writer != null){
+                this.queue.add(Chunk.STOP);
+                try{
+                    this.writer.join();
+                }
+                catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if(this.closeOut){
+                try{
+                    this.out.close();
+                }
+                catch(IOException e){
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+
+    private void put(byte b){
+        if(this.position == this.buffer.length){
+            drain();
+        }
+        this.buffer[this.position++] = b;
+    }
+
+
+    //makes room in the buffer: writes it out, or hands it to the background thread
+    private void drain(){
+        if(!this.background){
+            try{
+                this.out.write(this.buffer, 0, this.position);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            this.position = 0;
+            return;
+        }
+        handOff(null);
+        checkFailure();
+    }
+
+
+    //queues the current buffer (and done, counted down once it's written) and takes a free one
+    private void handOff(CountDownLatch done){
+        if(this.closed){
+            throw new IllegalStateException("result writer is closed");
+        }
+        if(this.writer == null){
+            this.writer = new Thread(this::write, "result-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+        try{
+            this.queue.put(new Chunk(this.buffer, this.position, done));
+            this.buffer = this.free.take();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while writing results", e);
+        }
+        this.position = 0;
+    }
+
+
+    private void checkFailure(){
+        IOException e = this.failure;
+        if(e != null){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    //background thread: writes queued buffers in order and recycles them. After a failure the
+    //rest is dropped (the error is reported to the caller), so the caller never blocks for good
+    private void write(){
+        while(true){
+            Chunk chunk;
+            try{
+                chunk = this.queue.take();
+            }
+            catch(InterruptedException e){
+                return;
+            }
+            if(chunk == Chunk.STOP){
+                return;
+            }
+            if(this.failure == null){
+                try{
+                    this.out.write(chunk.data, 0, chunk.length);
+                    if(chunk.done != null){
+                        this.out.flush();
+                    }
+                }
+                catch(IOException e){
+                    this.failure = e;
+                }
+            }
+            this.free.add(chunk.data);
+            if(chunk.done != null){
+                chunk.done.countDown();
+            }
+        }
+    }
+
+
+    //a filled buffer on its way to the background thread
+    private static final class Chunk{
+        static final Chunk STOP = new Chunk(null, 0, null);
+
+        final byte[] data;
+        final int length;
+        final CountDownLatch done;      //counted down once written and flushed (null = don't flush)
+
+        Chunk(byte[] data, int length, CountDownLatch done){
+            this.data = data;
+            this.length = length;
+            this.done = done;
+        }
+    }
+}
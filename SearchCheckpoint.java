@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+
+/* Append-only checkpoint journal for long ConsecutivePrimes runs, so a restarted run carries on
+where the last one stopped instead of starting over.
+
+File layout (little endian): a 16 byte header - int magic ("PRCK"), int format version, long
+limit - followed by records, each one
+    int     type
+    int     payload length in bytes
+    byte[]  payload
+    int     CRC32 of the payload
+
+    SEARCH  int window length, int start index, long prefix sum (sum of the primes before start)
+    RESULT  long prime, int count, int start index, int end index
+
+Only the search is journaled, not the wheel table: a restarted run sieves again, or reads the
+table back from the PrimeTableCache file if it has one, so the journal stays a few hundred bytes
+at any limit instead of a second copy of the table. Search positions are appended at most once
+per SEARCH_INTERVAL_NANOS and the result once, both on the search thread; search() returns only
+once the result is on file.
+
+On restart the journal is read front to back: the last search position is where the search
+resumes, and a result ends the search before it starts. A torn or corrupt record (e.g. from a
+kill mid-write) ends the journal there - it is cut off, and everything before it is used. A
+journal for a different limit, or from another format version (versions 1 and 2 also held the
+sieve table), is started over.
+
+The search is longest-window-first, so its first prime sum is the final answer: there is no
+"best so far" to save along the way, only how far the search has got, and then the result.
+Records are not forced to disk, so the journal survives the JVM dying, not necessarily the
+machine. */
+
+
+public class SearchCheckpoint implements ConsecutiveSumSearch.Progress{
+
+    private static final int MAGIC = 0x5052434B;   //"PRCK"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 16;
+    private static final int SEARCH = 2;
+    private static final int RESULT = 3;
+    private static final long SEARCH_INTERVAL_NANOS = 1000000000L;
+
+    private final Path file;
+    private FileChannel channel;        //open for appending once the journal is opened
+    private long limit = -1;
+
+    //replayed (or last written) state
+    private int searchLength;           //0 = no search position saved
+    private int searchStart;
+    private long searchPrefix;
+    private ConsecutiveSum result;
+    private long lastSearchWrite;
+
+
+    public SearchCheckpoint(Path file){
+        this.file = file;
+    }
+
+
+    //runs (or resumes) search for the answer under limit. A result saved by an earlier run is
+    //returned without searching at all
+    public ConsecutiveSum search(ConsecutiveSumSearch search, long limit){
+        open(limit);
+        if(this.result != null){
+            return this.result;
+        }
+        int length = 0;
+        int start = 0;
+        //the saved position only counts if it is over the same primes (the search reads them in as
+        //far as the start here)
+        if(this.searchLength > 0 && search.has(this.searchStart)
+                && (this.searchStart == 0 ? 0 : search.windowSum(0, this.searchStart - 1)) == this.searchPrefix){
+            length = this.searchLength;
+            start = this.searchStart;
+        }
+        this.lastSearchWrite = System.nanoTime();
+        ConsecutiveSum found = search.find(limit, length, start, this);
+        this.result = found;
+        append(startRecord(RESULT, 20).putLong(found.getPrime()).putInt(found.getCount())
+                .putInt(found.getStartIndex()).putInt(found.getEndIndex()));
+        return found;
+    }
+
+
+    //closes and removes the journal (e.g. once a run has finished)
+    public void delete() throws IOException{
+        if(this.channel != null){
+            this.channel.close();
+            this.channel = null;
+        }
+        this.limit = -1;
+        Files.deleteIfExists(this.file);
+    }
+
+
+    @Override
+    public void at(int length, int start, long prefixSum){
+        long now = System.nanoTime();
+        if(now - this.lastSearchWrite < SEARCH_INTERVAL_NANOS){
+            return;
+        }
+        this.lastSearchWrite = now;
+        this.searchLength = length;
+        this.searchStart = start;
+        this.searchPrefix = prefixSum;
+        append(startRecord(SEARCH, 16).putInt(length).putInt(start).putLong(prefixSum));
+    }
+
+
+    //opens the journal for limit and reads it back, unless it already is
+    private void open(long limit){
+        if(this.limit == limit){
+            return;
+        }
+        closeQuietly();
+        this.limit = limit;
+        this.searchLength = 0;
+        this.result = null;
+        try{
+            this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+        }
+        catch(IOException e){
+            System.err.printf("Could not open checkpoint %s (%s), running without it.\n", this.file, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+
+    //reads the journal front to back, keeping the last search position and the result. Anything
+    //after the first bad record is cut off. A journal that is empty, foreign or for another limit
+    //is started over
+    private void replay() throws IOException{
+        long size = this.channel.size();
+        ByteBuffer header = payload(HEADER_BYTES);
+        if(size < HEADER_BYTES || readFully(header, 0) < HEADER_BYTES
+                || header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(8) != this.limit){
+            this.channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).putLong(this.limit).flip();
+            writeFully(header, 0);
+            return;
+        }
+        long position = HEADER_BYTES;
+        ByteBuffer head = payload(8);
+        ByteBuffer crc = payload(4);
+        ByteBuffer payload = payload(20);       //largest record
+        CRC32 check = new CRC32();
+        while(position + 12 <= size){
+            head.clear();
+            crc.clear();
+            readFully(head, position);
+            int type = head.getInt(0);
+            int length = head.getInt(4);
+            if(length < 0 || length > payload.capacity() || position + 12 + length > size){
+                break;
+            }
+            payload.clear().limit(length);
+            readFully(payload, position + 8);
+            readFully(crc, position + 8 + length);
+            check.reset();
+            check.update(payload.array(), 0, length);
+            if((int)check.getValue() != crc.getInt(0) || !apply(type, payload, length)){
+                break;
+            }
+            position += 12 + length;
+        }
+        if(position < size){
+            this.channel.truncate(position);
+        }
+    }
+
+
+    //applies one verified record. Returns false if it doesn't fit this journal (ends the replay)
+    private boolean apply(int type, ByteBuffer payload, int length){
+        switch(type){
+            case SEARCH:
+                if(length != 16){
+                    return false;
+                }
+                this.searchLength = payload.getInt(0);
+                this.searchStart = payload.getInt(4);
+                this.searchPrefix = payload.getLong(8);
+                return true;
+            case RESULT:
+                if(length != 20){
+                    return false;
+                }
+                this.result = new ConsecutiveSum(payload.getLong(0), payload.getInt(8), payload.getInt(12), payload.getInt(16));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+
+    private static ByteBuffer payload(int bytes){
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    //starts a record: a new buffer with type and length written, ready for bytes of payload
+    private static ByteBuffer startRecord(int type, int bytes){
+        return payload(12 + bytes).putInt(type).putInt(bytes);
+    }
+
+
+    //adds the checksum to a record started with startRecord() and appends it to the journal.
+    //A failed write turns the journal off instead of failing the run
+    private void append(ByteBuffer record){
+        if(this.channel == null){
+            return;
+        }
+        int length = record.getInt(4);
+        CRC32 check = new CRC32();
+        check.update(record.array(), 8, length);
+        record.putInt((int)check.getValue()).flip();
+        try{
+            writeFully(record, this.channel.size());
+        }
+        catch(IOException e){
+            System.err.printf("Could not write checkpoint %s (%s), running without it.\n", this.file, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+
+    private int readFully(ByteBuffer buffer, long position) throws IOException{
+        int total = 0;
+        while(buffer.hasRemaining()){
+            int n = this.channel.read(buffer, position + total);
+            if(n < 0){
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException{
+        while(buffer.hasRemaining()){
+            position += this.channel.write(buffer, position);
+        }
+    }
+
+
+    private void closeQuietly(){
+        try{
+            if(this.channel != null){
+                this.channel.close();
+            }
+        }
+        catch(IOException ignored){
+        }
+        this.channel = null;
+    }
+}
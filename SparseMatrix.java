@@ -0,0 +1,66 @@
+import java.util.function.Consumer;
+
+
+/* Compressed sparse row (CSR) matrix of Markov chain transitions, used by MonopolyMarkov for boards
+too large for a dense matrix.
+
+It is stored transposed: row j lists the states that lead into state j (cols) and with what
+probability (values), which is the access pattern of both pi * P and Gauss-Seidel. The diagonal
+(a state leading back into itself) is kept apart, since Gauss-Seidel divides by 1 - P[j][j].
+Memory and time per sweep are O(states + transitions) rather than O(states^2). */
+
+
+class SparseMatrix {
+
+    final int states;
+    final int[] rowStart;       //row j is entries rowStart[j] .. rowStart[j + 1] - 1
+    final int[] cols;           //source state of each entry
+    final double[] values;      //transition probability of each entry
+    final double[] diagonal;    //diagonal[j] = P[j][j]
+
+
+    private SparseMatrix(int states, int[] rowStart, int[] cols, double[] values, double[] diagonal){
+        this.states = states;
+        this.rowStart = rowStart;
+        this.cols = cols;
+        this.values = values;
+        this.diagonal = diagonal;
+    }
+
+
+    //builds the transposed matrix from a chain that hands out its transitions. The chain is walked
+    //twice - once to size the rows, once to fill them - so nothing is buffered in between.
+    //duplicate (from, to) transitions are kept as separate entries, which sums them
+    static SparseMatrix transposed(int states, Consumer<MonopolyMarkov.TransitionSink> chain){
+        int[] rowStart = new int[states + 1];
+        double[] diagonal = new double[states];
+        chain.accept((from, to, prob) -> {
+            if(from == to){
+                diagonal[to] += prob;
+            }
+            else{
+                rowStart[to + 1]++;
+            }
+        });
+        for(int j = 0; j < states; ++j){
+            rowStart[j + 1] += rowStart[j];
+        }
+        int[] cols = new int[rowStart[states]];
+        double[] values = new double[rowStart[states]];
+        int[] fill = rowStart.clone();
+        chain.accept((from, to, prob) -> {
+            if(from != to){
+                int k = fill[to]++;
+                cols[k] = from;
+                values[k] = prob;
+            }
+        });
+        return new SparseMatrix(states, rowStart, cols, values, diagonal);
+    }
+
+
+    //number of stored (off-diagonal) entries
+    int entries(){
+        return this.cols.length;
+    }
+}
@@ -0,0 +1,62 @@
+import java.util.function.IntToLongFunction;
+
+
+/* Human readable results, byte for byte what ConsecutivePrimes.printResults(), Monopoly.printOdds()
+and Monopoly.driverSweep() used to print with one printf per value. Sweep results for any layout
+but the first (the standard board) start with "#" and the layout index. */
+
+
+public class TextResultSink implements ResultSink{
+
+    private final ResultWriter out;
+
+
+    TextResultSink(ResultWriter out){
+        this.out = out;
+    }
+
+
+    @Override
+    public void primeSum(long prime, int count, int startIndex, int endIndex, IntToLongFunction terms){
+        this.out.append("Answer is: ").append(prime).append('\n');
+        this.out.append("Which equals the sum of the following [").append(count).append("] consecutive primes: \n");
+        //the legacy listing: startIndex through endIndex, so a search that found nothing still
+        //prints one term, as it always has
+        for(int i = startIndex; i <= endIndex; ++i){
+            this.out.append(' ').append(terms.applyAsLong(i));
+            this.out.append(i != endIndex ? ", " : "\n");
+        }
+    }
+
+
+    @Override
+    public void odds(MonopolyBoard board, double[] odds){
+        for(int i = 0; i < board.numOfSquares; ++i){
+            if(i % 5 == 0){
+                this.out.append('\n');
+            }
+            this.out.append('[').append(board.label(i)).append("]: ").appendFixed(odds[i] * 100, 4).append("%\t");
+        }
+    }
+
+
+    @Override
+    public void sweep(MonopolySweep.Result result){
+        if(result.layout > 0){
+            this.out.append('#').append(result.layout).append(' ');
+        }
+        this.out.append('d').append(result.diceSides).append(": ").append(result.modalString).append('\n');
+    }
+
+
+    @Override
+    public void flush(){
+        this.out.flush();
+    }
+
+
+    @Override
+    public void close(){
+        this.out.close();
+    }
+}
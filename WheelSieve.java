@@ -0,0 +1,349 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+
+/* Segmented sieve of eratosthenes on a mod-30 wheel: the sieve behind ConsecutivePrimes, for limits
+in and past the int range.
+
+Every prime above 5 is 1, 7, 11, 13, 17, 19, 23 or 29 mod 30, so only those 8 residues are
+stored: byte b of the table stands for the values 30b + {1, 7, 11, 13, 17, 19, 23, 29}, one bit
+each, and a set bit marks a composite. That is limit/30 bytes for the table, against limit/16 for
+an odd-only sieve, and multiples of 3 and 5 are never crossed off at all.
+
+A base prime p only ever hits 8 bit positions: its multiples p*q with q coprime to 30 fall into
+8 residue classes of q mod 30, and within one class the multiples are 30p apart - p bytes apart
+in the table, always on the same bit. So every base prime is 8 strided loops that OR a constant
+mask, over one cache-sized segment at a time, and segments can be sieved on a ForkJoinPool
+(parallelism > 1) with bit-for-bit identical output.
+
+Values and limits are longs. The table is a single byte[], which caps the limit at about
+6.4 * 10^10 (MAX_LIMIT) - short of 10^11; base primes go up to sqrt(limit), well inside an int.
+
+A sieve can start from a table sieved earlier (PrimeTableCache): every segment the old table
+fully covers is copied, and only the rest is sieved. */
+
+
+public class WheelSieve{
+
+    //bytes per segment: 32KB, about the size of a typical L1 data cache (983040 values)
+    static final int SEGMENT_BYTES = 1 << 15;
+
+    //largest limit the table can hold. Leaves room past the last byte for one more stride of
+    //the largest base prime (< 2^18), so the byte index of a stride can never overflow an int
+    public static final long MAX_LIMIT = 30L * (Integer.MAX_VALUE - (1 << 18)) - 1;
+
+    //the residues mod 30 that are coprime to 30, in bit order
+    private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+    //the primes the wheel is built from, which are not in the table
+    private static final long[] SMALL = {2, 3, 5};
+
+    //bit mask of each residue mod 30 (0 for residues that share a factor with 30)
+    private static final int[] MASK = new int[30];
+
+    static{
+        for(int i = 0; i < RESIDUES.length; ++i){
+            MASK[RESIDUES[i]] = 1 << i;
+        }
+    }
+
+    private final byte[] table;         //byte b = values 30b + RESIDUES, set bit = composite
+    private final long limit;           //largest value covered by the table
+    private final int[] basePrimes;     //primes from 7 up to sqrt(limit), shared by every segment
+    private final int parallelism;      //number of worker threads (1 = sieve on the calling thread)
+
+
+    //constructor sieves every value up to (and including) limit on the calling thread.
+    //limits below 2 are raised to 2, so the sieve always contains at least one prime
+    public WheelSieve(long limit){
+        this(limit, 1);
+    }
+
+
+    //same as above, but splits the segments across a ForkJoinPool with the given parallelism
+    public WheelSieve(long limit, int parallelism){
+        this.limit = checkedLimit(limit, parallelism);
+        this.table = new byte[(int)(this.limit / 30) + 1];
+        this.basePrimes = basePrimes(this.limit);
+        this.parallelism = parallelism;
+        sieve(0);
+    }
+
+
+    //builds a sieve up to limit on top of a table previously sieved up to knownLimit (the bytes
+    //returned by bytes() of that sieve). Only segments the known table doesn't fully cover are
+    //sieved; if it already covers limit, nothing is sieved at all
+    WheelSieve(long limit, int parallelism, ByteBuffer known, long knownLimit){
+        this.limit = checkedLimit(limit, parallelism);
+        this.table = new byte[(int)(this.limit / 30) + 1];
+        this.basePrimes = basePrimes(this.limit);
+        this.parallelism = parallelism;
+        //the last byte of the known table was padded past knownLimit, so its segment is re-sieved
+        int first = 0;
+        while(first < segmentCount() && 30L * segmentEnd(first) - 1 <= knownLimit){
+            first++;
+        }
+        int copied = Math.min(first * SEGMENT_BYTES, this.table.length);
+        known.get(0, this.table, 0, copied);
+        sieve(first);
+    }
+
+
+    //largest value covered by this sieve
+    public long getLimit(){
+        return this.limit;
+    }
+
+
+    //the wheel table itself (not a copy - callers must not modify it)
+    byte[] bytes(){
+        return this.table;
+    }
+
+
+    //O(1) primality lookup for any value in [0, limit]
+    public boolean isPrime(long n){
+        if(n > this.limit){
+            throw new IllegalArgumentException(n + " is past the sieved limit " + this.limit);
+        }
+        if(n < 7){
+            return n == 2 || n == 3 || n == 5;
+        }
+        int mask = MASK[(int)(n % 30)];
+        return mask != 0 && (this.table[(int)(n / 30)] & mask) == 0;
+    }
+
+
+    //number of primes up to limit (2, 3 and 5 included)
+    public long count(){
+        long count = smallPrimes();
+        for(byte b : this.table){
+            count += Integer.bitCount(~b & 0xFF);
+        }
+        return count;
+    }
+
+
+    //hands every prime up to limit to action, in increasing order (no boxing)
+    public void forEachPrime(LongConsumer action){
+        PrimitiveIterator.OfLong primes = iterator();
+        while(primes.hasNext()){
+            action.accept(primes.nextLong());
+        }
+    }
+
+
+    //every prime up to limit, in increasing order, read straight off the table
+    public PrimitiveIterator.OfLong iterator(){
+        return new PrimitiveIterator.OfLong(){
+            private int small = 0;          //how many of 2, 3, 5 have been handed out
+            private int index = -1;         //table byte being read
+            private int open = 0;           //primes of that byte not handed out yet (bit mask)
+
+            @Override
+            public boolean hasNext(){
+                if(this.small < smallPrimes()){
+                    return true;
+                }
+                while(this.open == 0){
+                    if(++this.index >= WheelSieve.this.table.length){
+                        this.index = WheelSieve.this.table.length;
+                        return false;
+                    }
+                    this.open = ~WheelSieve.this.table[this.index] & 0xFF;
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong(){
+                if(!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                if(this.small < smallPrimes()){
+                    return SMALL[this.small++];
+                }
+                int bit = Integer.numberOfTrailingZeros(this.open);
+                this.open &= this.open - 1;
+                return 30L * this.index + RESIDUES[bit];
+            }
+        };
+    }
+
+
+    //how many of the primes 2, 3 and 5 are within the limit
+    private int smallPrimes(){
+        return this.limit >= 5 ? 3 : this.limit >= 3 ? 2 : 1;
+    }
+
+
+    //limit raised to 2, once it is known to fit the table and parallelism is known to be valid
+    private static long checkedLimit(long limit, int parallelism){
+        if(parallelism < 1){
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+        if(limit > MAX_LIMIT){
+            throw new IllegalArgumentException(limit + " is past the largest wheel sieve limit " + MAX_LIMIT);
+        }
+        return Math.max(limit, 2);
+    }
+
+
+    //primes from 7 up to sqrt(limit): the base primes the wheel doesn't already take care of
+    private static int[] basePrimes(long limit){
+        int[] odd = smallOddPrimes(isqrt(limit));
+        int skip = 0;
+        while(skip < odd.length && odd[skip] < 7){
+            skip++;
+        }
+        return Arrays.copyOfRange(odd, skip, odd.length);
+    }
+
+
+    //sieves the table from segment first onward, one segment at a time (or several, if parallel)
+    private void sieve(int first){
+        runSegments(first, s -> sieveSegment(s * SEGMENT_BYTES, segmentEnd(s)));
+        finish();
+    }
+
+
+    //number of segments the table is split into
+    private int segmentCount(){
+        return (int)(((long)this.table.length + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+    }
+
+
+    //first table byte past segment s
+    private int segmentEnd(int s){
+        return (int)Math.min((long)(s + 1) * SEGMENT_BYTES, this.table.length);
+    }
+
+
+    //1 is not prime, and the residues past limit in the last byte must never read as primes
+    private void finish(){
+        this.table[0] |= 1;
+        int last = this.table.length - 1;
+        for(int i = 0; i < RESIDUES.length; ++i){
+            if(30L * last + RESIDUES[i] > this.limit){
+                this.table[last] |= 1 << i;
+            }
+        }
+    }
+
+
+    //runs action once per segment index from first on, in order on this thread or spread over a
+    //ForkJoinPool
+    private void runSegments(int first, IntConsumer action){
+        int segments = segmentCount();
+        if(this.parallelism == 1 || segments - first <= 1){
+            for(int s = first; s < segments; ++s){
+                action.accept(s);
+            }
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try{
+            pool.invoke(new SegmentTask(first, segments, action));
+        }
+        finally{
+            pool.shutdown();
+        }
+    }
+
+
+    //crosses off the multiples of every base prime in table bytes [from, to).
+    //p * q with q = RESIDUES[j] mod 30 always lands on the same bit, and the next one in that
+    //class (q + 30) is exactly p bytes further on
+    private void sieveSegment(int from, int to){
+        long lowValue = 30L * from;
+        long highValue = 30L * to;          //exclusive
+        for(int p : this.basePrimes){
+            if((long)p * p >= highValue){
+                break;
+            }
+            //smallest cofactor worth crossing off: never below p (smaller ones belong to
+            //smaller primes), and never below the segment
+            long qMin = Math.max(p, (lowValue + p - 1) / p);
+            int qResidue = (int)(qMin % 30);
+            for(int r : RESIDUES){
+                long q = qMin + (r - qResidue + 30) % 30;
+                long multiple = p * q;
+                int mask = MASK[(int)(multiple % 30)];
+                for(int k = (int)(multiple / 30); k < to; k += p){
+                    this.table[k] |= mask;
+                }
+            }
+        }
+    }
+
+
+    //plain sieve for the (small) list of odd base primes up to n. PrimeSource sieves with these too
+    static int[] smallOddPrimes(int n){
+        if(n < 3){
+            return new int[0];
+        }
+        boolean[] composite = new boolean[n + 1];
+        int count = 0;
+        for(int i = 3; i <= n; i += 2){
+            if(!composite[i]){
+                count++;
+                for(long j = (long)i * i; j <= n; j += 2 * i){
+                    composite[(int)j] = true;
+                }
+            }
+        }
+        int[] result = new int[count];
+        int next = 0;
+        for(int i = 3; i <= n; i += 2){
+            if(!composite[i]){
+                result[next++] = i;
+            }
+        }
+        return result;
+    }
+
+
+    //floor(sqrt(n)) without floating point rounding surprises
+    static int isqrt(long n){
+        long root = (long)Math.sqrt((double)n);
+        while(root * root > n){
+            root--;
+        }
+        while((root + 1) * (root + 1) <= n){
+            root++;
+        }
+        return (int)root;
+    }
+
+
+    //fork/join task that splits a range of segment indices in half until one segment is left
+    private static final class SegmentTask extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        private final int first;
+        private final int last;         //exclusive
+        private final IntConsumer action;
+
+        SegmentTask(int first, int last, IntConsumer action){
+            this.first = first;
+            this.last = last;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute(){
+            if(this.last - this.first == 1){
+                this.action.accept(this.first);
+                return;
+            }
+            int mid = (this.first + this.last) >>> 1;
+            invokeAll(new SegmentTask(this.first, mid, this.action), new SegmentTask(mid, this.last, this.action));
+        }
+    }
+}
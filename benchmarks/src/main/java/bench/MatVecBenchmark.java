@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/* The dense matrix-vector kernels behind MonopolyMarkov.solve(), scalar against the Vector API
+one, at the size of the standard board (120 states): one product (one power iteration step), and
+one batched step over 16 interleaved chains (MonopolyMarkov.solveBatch()). The fork adds
+jdk.incubator.vector, so the "vector" kernel is really the SIMD one - setup fails otherwise. */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MatVecBenchmark {
+
+    private static final int STATES = 120;
+    private static final int BATCH = 16;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private Object target;
+    private double[] matrix;
+    private double[] x;
+    private double[] y;
+    private double[] matrices;
+    private double[] xs;
+    private double[] ys;
+
+
+    @Setup
+    public void setUp() throws Throwable{
+        this.target = this.kernel.equals("scalar") ? (Object)Targets.SCALAR_KERNEL.invokeExact() : (Object)Targets.BEST_KERNEL.invokeExact();
+        String name = (String)Targets.KERNEL_NAME.invokeExact(this.target);
+        if(!name.equals(this.kernel)){
+            throw new IllegalStateException("wanted the " + this.kernel + " kernel, got " + name);
+        }
+        Random random = new Random(1);
+        this.matrix = fill(random, STATES * STATES);
+        this.x = fill(random, STATES);
+        this.y = new double[STATES];
+        this.matrices = fill(random, STATES * STATES * BATCH);
+        this.xs = fill(random, STATES * BATCH);
+        this.ys = new double[STATES * BATCH];
+    }
+
+
+    @Benchmark
+    public double[] multiply() throws Throwable{
+        Targets.MULTIPLY.invokeExact(this.target, this.matrix, this.x, this.y, STATES);
+        return this.y;
+    }
+
+
+    @Benchmark
+    public double[] multiplyBatch() throws Throwable{
+        Targets.MULTIPLY_BATCH.invokeExact(this.target, this.matrices, this.xs, this.ys, STATES, BATCH);
+        return this.ys;
+    }
+
+
+    private static double[] fill(Random random, int length){
+        double[] values = new double[length];
+        for(int i = 0; i < length; ++i){
+            values[i] = random.nextDouble();
+        }
+        return values;
+    }
+}
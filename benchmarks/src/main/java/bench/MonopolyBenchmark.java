@@ -0,0 +1,62 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/* The Monopoly odds pipeline for 4 and 6 sided dice, without printing: what driver() computes,
+and the two markov chain solvers (dense power iteration and sparse gauss-seidel) to 1e-12. Each
+call rebuilds the board, as the drivers do. */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonopolyBenchmark {
+
+    @Param({"4", "6"})
+    public int diceSides;
+
+    private Object monopoly;
+
+
+    @Setup
+    public void setUp() throws Throwable{
+        this.monopoly = (Object)Targets.NEW_MONOPOLY.invokeExact(this.diceSides);
+    }
+
+
+    @Benchmark
+    public double[] driver() throws Throwable{
+        return (double[])Targets.FIND_ODDS.invokeExact(this.monopoly);
+    }
+
+
+    @Benchmark
+    public double[] markov() throws Throwable{
+        Targets.INIT_BOARD.invokeExact(this.monopoly);
+        Targets.SOLVE_MARKOV.invokeExact(this.monopoly, 1e-12);
+        return (double[])Targets.ODDS.invokeExact(this.monopoly);
+    }
+
+
+    @Benchmark
+    public double[] sparse() throws Throwable{
+        Targets.INIT_BOARD.invokeExact(this.monopoly);
+        Targets.SOLVE_SPARSE.invokeExact(this.monopoly, 1e-12, 1.0);
+        return (double[])Targets.ODDS.invokeExact(this.monopoly);
+    }
+}
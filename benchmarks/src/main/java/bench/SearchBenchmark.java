@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/* ConsecutivePrimes.findConSum() without the printing: reading the primes off the wheel table into
+the prefix sums as far as the search needs them, and searching for the longest prime sum below
+the limit, with sums checked by the wheel-backed PrimeOracle - the same search findConSum() runs.
+The wheel table is sieved once per trial (that is SieveBenchmark's job). */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchBenchmark {
+
+    @Param({"100000", "1000000", "10000000", "100000000", "1000000000"})
+    public int limit;
+
+    private Object wheel;
+    private LongPredicate oracle;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable{
+        this.wheel = (Object)Targets.NEW_WHEEL.invokeExact((long)this.limit);
+        this.oracle = (LongPredicate)(Object)Targets.NEW_ORACLE.invokeExact(this.wheel);
+    }
+
+
+    @Benchmark
+    public Object findConSum() throws Throwable{
+        PrimitiveIterator.OfLong primes = (PrimitiveIterator.OfLong)Targets.WHEEL_PRIMES.invokeExact(this.wheel);
+        Object search = (Object)Targets.NEW_SEARCH.invokeExact(primes, this.oracle);
+        return (Object)Targets.FIND.invokeExact(search, (long)this.limit);
+    }
+}
@@ -0,0 +1,37 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/* ConsecutivePrimes.findPrimes(): sieving up to the limit on one thread, into the mod-30
+WheelSieve that findPrimes() returns and the search reads its primes from. */
+
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SieveBenchmark {
+
+    @Param({"100000", "1000000", "10000000", "100000000", "1000000000"})
+    public int limit;
+
+
+    //the mod-30 wheel table (what findPrimes() returns)
+    @Benchmark
+    public Object wheel() throws Throwable{
+        return (Object)Targets.NEW_WHEEL.invokeExact((long)this.limit);
+    }
+}
@@ -0,0 +1,97 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.PrimitiveIterator;
+import java.util.function.LongPredicate;
+
+
+/* Handles on the code under test.
+
+The projects live in the default package, which a named package can't import - and JMH refuses
+benchmarks in the default package. So every entry point a benchmark needs is looked up by name
+once, here, and called through a MethodHandle held in a static final field. The JIT treats those
+as constants and inlines through them like a direct call, so they add nothing measurable.
+
+All handles are adapted to Object in place of the (unnameable) project types, so they can be
+called with invokeExact. */
+
+
+final class Targets {
+
+    static final MethodHandle NEW_WHEEL;        //(long limit) -> WheelSieve
+    static final MethodHandle WHEEL_PRIMES;     //(WheelSieve) -> PrimitiveIterator.OfLong, WheelSieve.iterator()
+    static final MethodHandle NEW_ORACLE;       //(WheelSieve) -> PrimeOracle
+    static final MethodHandle NEW_SEARCH;       //(PrimitiveIterator.OfLong, LongPredicate) -> ConsecutiveSumSearch
+    static final MethodHandle FIND;             //(ConsecutiveSumSearch, long) -> ConsecutiveSum
+    static final MethodHandle NEW_MONOPOLY;     //(int diceSides) -> Monopoly
+    static final MethodHandle FIND_ODDS;        //(Monopoly) -> double[], what driver() computes
+    static final MethodHandle INIT_BOARD;       //(Monopoly) -> void
+    static final MethodHandle SOLVE_MARKOV;     //(Monopoly, double tolerance) -> void
+    static final MethodHandle SOLVE_SPARSE;     //(Monopoly, double tolerance, double omega) -> void
+    static final MethodHandle ODDS;             //(Monopoly) -> double[], the odds field
+    static final MethodHandle SCALAR_KERNEL;    //() -> MatVecKernel, MatVecKernel.scalar()
+    static final MethodHandle BEST_KERNEL;      //() -> MatVecKernel, MatVecKernel.best()
+    static final MethodHandle KERNEL_NAME;      //(MatVecKernel) -> String
+    static final MethodHandle MULTIPLY;         //(MatVecKernel, double[] matrix, double[] x, double[] y, int n) -> void
+    static final MethodHandle MULTIPLY_BATCH;   //(MatVecKernel, double[] matrices, double[] x, double[] y, int n, int batch) -> void
+
+    static{
+        try{
+            Class<?> wheel = Class.forName("WheelSieve");
+            Class<?> oracle = Class.forName("PrimeOracle");
+            Class<?> search = Class.forName("ConsecutiveSumSearch");
+            Class<?> sum = Class.forName("ConsecutiveSum");
+            Class<?> monopoly = Class.forName("Monopoly");
+            Class<?> kernel = Class.forName("MatVecKernel");
+            NEW_WHEEL = lookup(wheel).findConstructor(wheel, MethodType.methodType(void.class, long.class))
+                    .asType(MethodType.methodType(Object.class, long.class));
+            WHEEL_PRIMES = lookup(wheel).findVirtual(wheel, "iterator", MethodType.methodType(PrimitiveIterator.OfLong.class))
+                    .asType(MethodType.methodType(PrimitiveIterator.OfLong.class, Object.class));
+            NEW_ORACLE = lookup(oracle).findConstructor(oracle, MethodType.methodType(void.class, wheel))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            NEW_SEARCH = lookup(search).findConstructor(search, MethodType.methodType(void.class, PrimitiveIterator.OfLong.class, LongPredicate.class))
+                    .asType(MethodType.methodType(Object.class, PrimitiveIterator.OfLong.class, LongPredicate.class));
+            FIND = lookup(search).findVirtual(search, "find", MethodType.methodType(sum, long.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, long.class));
+            NEW_MONOPOLY = lookup(monopoly).findConstructor(monopoly, MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(Object.class, int.class));
+            FIND_ODDS = lookup(monopoly).findVirtual(monopoly, "findOdds", MethodType.methodType(double[].class))
+                    .asType(MethodType.methodType(double[].class, Object.class));
+            INIT_BOARD = lookup(monopoly).findVirtual(monopoly, "initBoard", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            SOLVE_MARKOV = lookup(monopoly).findVirtual(monopoly, "solveMarkov", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            SOLVE_SPARSE = lookup(monopoly).findVirtual(monopoly, "solveSparse", MethodType.methodType(void.class, double.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class, double.class));
+            ODDS = lookup(monopoly).findGetter(monopoly, "odds", double[].class)
+                    .asType(MethodType.methodType(double[].class, Object.class));
+            SCALAR_KERNEL = lookup(kernel).findStatic(kernel, "scalar", MethodType.methodType(kernel))
+                    .asType(MethodType.methodType(Object.class));
+            BEST_KERNEL = lookup(kernel).findStatic(kernel, "best", MethodType.methodType(kernel))
+                    .asType(MethodType.methodType(Object.class));
+            KERNEL_NAME = lookup(kernel).findVirtual(kernel, "name", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            MULTIPLY = lookup(kernel).findVirtual(kernel, "multiply",
+                    MethodType.methodType(void.class, double[].class, double[].class, double[].class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double[].class, double[].class, double[].class, int.class));
+            MULTIPLY_BATCH = lookup(kernel).findVirtual(kernel, "multiplyBatch",
+                    MethodType.methodType(void.class, double[].class, double[].class, double[].class, int.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double[].class, double[].class, double[].class, int.class, int.class));
+        }
+        catch(ReflectiveOperationException e){
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+
+    private Targets(){
+    }
+
+
+    //full (private) access to target, which is fine: both sit in the class path's unnamed module
+    private static MethodHandles.Lookup lookup(Class<?> target) throws IllegalAccessException{
+        return MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+    }
+}
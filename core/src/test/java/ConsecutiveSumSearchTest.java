@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+
+/* ConsecutiveSumSearch against a brute force over every window of primes: the longest window whose
+sum is a prime under the limit, the leftmost one among windows of that length, and (1, 0, 0, 0)
+when there is none. A search resumed from any position it reported finds the same answer, and
+findAll() answers many limits in one pass exactly as find() answers each. */
+
+
+class ConsecutiveSumSearchTest {
+
+    private static final int LARGEST = 200000;
+    private static final PrimeSieve SIEVE = new PrimeSieve(LARGEST);
+    private static final int[] PRIMES = SIEVE.primes();
+
+
+    private static ConsecutiveSumSearch search(long limit){
+        WheelSieve wheel = new WheelSieve(limit);
+        return new ConsecutiveSumSearch(wheel.iterator(), new PrimeOracle(wheel));
+    }
+
+
+    //every window [start, start + count) with a sum up to limit, longest first and leftmost
+    //among equals
+    private static ConsecutiveSum bruteForce(int limit){
+        ConsecutiveSum best = new ConsecutiveSum(1, 0, 0, 0);
+        for(int start = 0; start < PRIMES.length; ++start){
+            long sum = 0;
+            for(int end = start; end < PRIMES.length; ++end){
+                sum += PRIMES[end];
+                if(sum > limit){
+                    break;
+                }
+                int count = end - start + 1;
+                if(count >= 2 && count > best.getCount() && SIEVE.isPrime((int)sum)){
+                    best = new ConsecutiveSum(sum, count, start, end);
+                }
+            }
+        }
+        return best;
+    }
+
+
+    private static void assertSame(ConsecutiveSum expected, ConsecutiveSum actual, String what){
+        assertEquals(expected.getPrime(), actual.getPrime(), what);
+        assertEquals(expected.getCount(), actual.getCount(), what);
+        assertEquals(expected.getStartIndex(), actual.getStartIndex(), what);
+        assertEquals(expected.getEndIndex(), actual.getEndIndex(), what);
+    }
+
+
+    @Test
+    void findMatchesBruteForce(){
+        for(int limit = 0; limit <= 2000; ++limit){
+            assertSame(bruteForce(limit), search(limit).find(limit), "limit " + limit);
+        }
+        for(int limit : new int[]{9999, 10000, 65536, 100000, 123457, LARGEST}){
+            assertSame(bruteForce(limit), search(limit).find(limit), "limit " + limit);
+        }
+    }
+
+
+    @Test
+    void knownAnswers(){
+        assertSame(new ConsecutiveSum(41, 6, 0, 5), search(100).find(100), "100");
+        assertSame(new ConsecutiveSum(953, 21, 3, 23), search(1000).find(1000), "1000");
+        assertSame(new ConsecutiveSum(1, 0, 0, 0), search(4).find(4), "4");
+    }
+
+
+    @Test
+    void resumeFromAnyReportedPosition(){
+        int limit = LARGEST;
+        ConsecutiveSum expected = search(limit).find(limit);
+        List<int[]> positions = new ArrayList<int[]>();
+        List<Long> prefixSums = new ArrayList<Long>();
+        search(limit).find(limit, 0, 0, (length, start, prefixSum) -> {
+            positions.add(new int[]{length, start});
+            prefixSums.add(prefixSum);
+        });
+        assertTrue(positions.size() > 1, "the search reports every length it starts");
+
+        for(int i = 0; i < positions.size(); ++i){
+            int[] at = positions.get(i);
+            long before = 0;
+            for(int p = 0; p < at[1]; ++p){
+                before += PRIMES[p];
+            }
+            assertEquals(before, prefixSums.get(i).longValue(), "prefix sum at " + at[0] + ", " + at[1]);
+            ConsecutiveSum resumed = search(limit).find(limit, at[0], at[1], (length, start, prefixSum) -> {});
+            assertSame(expected, resumed, "resumed at length " + at[0] + ", start " + at[1]);
+        }
+    }
+
+
+    @Test
+    void findAllMatchesBruteForce(){
+        List<Long> sorted = new ArrayList<Long>();
+        for(long limit = 0; limit <= 2000; limit += 7){
+            sorted.add(limit);
+        }
+        //repeated limits, and some far apart
+        for(long limit : new long[]{2000, 2000, 9999, 10000, 65536, 100000, 123457, LARGEST}){
+            sorted.add(limit);
+        }
+        long[] limits = new long[sorted.size()];
+        for(int i = 0; i < limits.length; ++i){
+            limits[i] = sorted.get(i);
+        }
+        ConsecutiveSum[] answers = search(LARGEST).findAll(limits);
+        assertEquals(limits.length, answers.length);
+        for(int i = 0; i < limits.length; ++i){
+            assertSame(bruteForce((int)limits[i]), answers[i], "limit " + limits[i]);
+        }
+        assertEquals(0, search(LARGEST).findAll(new long[0]).length);
+        assertThrows(IllegalArgumentException.class, () -> search(100).findAll(new long[]{100, 41}));
+    }
+
+
+    @Test
+    void findConSumsAnswersEveryLimit(){
+        ConsecutivePrimes primes = new ConsecutivePrimes(10);
+        TreeSet<Long> limits = new TreeSet<Long>(List.of(100L, 1000L, 100000L, 5L));
+        SortedMap<Long, ConsecutiveSum> answers = primes.findConSums(limits);
+        assertEquals(limits, answers.keySet());
+        for(long limit : limits){
+            assertSame(bruteForce((int)limit), answers.get(limit), "limit " + limit);
+        }
+    }
+}
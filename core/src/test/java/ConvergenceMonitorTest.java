@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/* The convergence monitor: a tolerance-only monitor stops the solver exactly where the plain
+solve() does, the ranking test stops it early on the same top squares, batch intervals come from the
+spread of the batch means, and the trace keeps only its latest steps. */
+
+
+class ConvergenceMonitorTest {
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    @Test
+    void toleranceStopsWherePlainSolveDoes(){
+        MonopolyBoard board = standard();
+        MonopolyMarkov plain = new MonopolyMarkov(board, 6);
+        double[] expected = plain.solve(1e-12, 1000000);
+
+        ConvergenceMonitor monitor = new ConvergenceMonitor(1e-12, 0, 0.95);
+        MonopolyMarkov traced = new MonopolyMarkov(board, 6);
+        assertArrayEquals(expected, traced.solve(monitor, 1000000), 0.0);
+        assertEquals(plain.iterations(), traced.iterations());
+        assertEquals(plain.iterations(), monitor.steps());
+        assertTrue(monitor.converged());
+        assertEquals(plain.iterations(), monitor.last().progress);
+        assertTrue(monitor.last().residual <= 1e-12);
+        assertTrue(Double.isInfinite(monitor.trace().get(0).l1Change), "nothing to compare the first step to");
+
+        //the plain solvers' monitor keeps no trace
+        ConvergenceMonitor quiet = new ConvergenceMonitor(1e-12);
+        new MonopolyMarkov(board, 6).solve(quiet, 1000000);
+        assertEquals(plain.iterations(), quiet.steps());
+        assertTrue(quiet.trace().isEmpty());
+        assertNull(quiet.last());
+    }
+
+
+    @Test
+    void rankingStopsEarlyOnTheSameSquares(){
+        MonopolyBoard board = standard();
+        for(int sides : new int[]{4, 6}){
+            MonopolyMarkov full = new MonopolyMarkov(board, sides);
+            int[] expected = Monopoly.topSquares(full.solve(1e-15, 1000000), 3);
+
+            ConvergenceMonitor monitor = new ConvergenceMonitor(1e-15, 3, 0.95);
+            MonopolyMarkov early = new MonopolyMarkov(board, sides);
+            double[] odds = early.solve(monitor, 1000000);
+            assertTrue(early.iterations() < full.iterations(), "d" + sides + " stopped early");
+            assertTrue(monitor.last().rankingStable, "d" + sides);
+            assertArrayEquals(expected, Monopoly.topSquares(odds, 3), "d" + sides);
+            assertArrayEquals(expected, monitor.last().ranking, "d" + sides);
+        }
+    }
+
+
+    @Test
+    void intervalsComeFromTheBatchSpread(){
+        ConvergenceMonitor monitor = new ConvergenceMonitor(1e-3, 0, 0.95);
+        monitor.addBatch(new long[]{1, 9}, 10);
+        assertFalse(monitor.endRound(), "one batch has no spread");
+        assertTrue(Double.isInfinite(monitor.halfWidths()[0]));
+
+        //batch means 0.1 and 0.3: sample variance 0.02, so the half-width is z * sqrt(0.02 / 2)
+        monitor.addBatch(new long[]{3, 7}, 10);
+        assertFalse(monitor.endRound());
+        double z = ConvergenceMonitor.normalQuantile(0.975);
+        assertArrayEquals(new double[]{z * 0.1, z * 0.1}, monitor.halfWidths(), 1e-12);
+        assertArrayEquals(new double[]{0.2, 0.8}, monitor.estimate(), 1e-15);
+        assertEquals(20, monitor.last().progress);
+
+        //identical batches have no spread, but are not trusted before MIN_BATCHES of them
+        ConvergenceMonitor steady = new ConvergenceMonitor(1e-3, 0, 0.95);
+        for(int batch = 1; batch <= ConvergenceMonitor.MIN_BATCHES; ++batch){
+            steady.addBatch(new long[]{25, 75}, 100);
+            assertEquals(batch == ConvergenceMonitor.MIN_BATCHES, steady.endRound(), "after " + batch + " batches");
+        }
+        assertArrayEquals(new double[]{0.0, 0.0}, steady.halfWidths(), 1e-12);
+    }
+
+
+    @Test
+    void samplingStopsOnceTheTopSquaresSeparate(){
+        MonopolySimulator simulator = new MonopolySimulator(standard(), 6);
+        ConvergenceMonitor monitor = new ConvergenceMonitor(0.0, 1, 0.99);
+        MonopolySimulator.Result result = simulator.runUntilStable(monitor, 2, 200000, 100000000, 5);
+        assertTrue(monitor.converged());
+        assertTrue(result.turns < 100000000, "jail separates long before the cap");
+        assertEquals(10, monitor.last().ranking[0]);
+    }
+
+
+    @Test
+    void normalQuantile(){
+        assertEquals(0.0, ConvergenceMonitor.normalQuantile(0.5), 1e-12);
+        assertEquals(1.959963985, ConvergenceMonitor.normalQuantile(0.975), 1e-8);
+        assertEquals(2.575829304, ConvergenceMonitor.normalQuantile(0.995), 1e-8);
+        assertEquals(-2.326347874, ConvergenceMonitor.normalQuantile(0.01), 1e-8);
+        assertEquals(-3.090232306, ConvergenceMonitor.normalQuantile(0.001), 1e-8);
+    }
+
+
+    @Test
+    void traceKeepsTheLatestSteps(){
+        ConvergenceMonitor monitor = new ConvergenceMonitor(0.0, 0, 0.95, 5);
+        double[] odds = new double[2];
+        for(int i = 1; i <= 12; ++i){
+            odds[0] = 1.0 / i;
+            odds[1] = 1.0 - odds[0];
+            monitor.iterate(odds, Double.NaN);
+        }
+        assertEquals(12, monitor.steps());
+        List<ConvergenceMonitor.Step> trace = monitor.trace();
+        assertEquals(5, trace.size());
+        for(int k = 0; k < trace.size(); ++k){
+            ConvergenceMonitor.Step step = trace.get(k);
+            int i = 8 + k;
+            assertEquals(i, step.progress);
+            //NaN residual means the L1 change: 2 * (1/(i-1) - 1/i)
+            assertEquals(2 * (1.0 / (i - 1) - 1.0 / i), step.residual, 1e-15);
+            assertEquals(step.l1Change, step.residual);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ConvergenceMonitor(1e-9, 3, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new ConvergenceMonitor(1e-9, 3, 0.95, -1));
+    }
+}
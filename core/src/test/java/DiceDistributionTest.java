@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/* The dice distributions: the FFT convolution agrees with the direct one, totals match a count of
+every face combination, and distributions are cached. */
+
+
+class DiceDistributionTest {
+
+    //the schoolbook convolution, with no FFT anywhere
+    private static double[] direct(double[] a, double[] b){
+        double[] result = new double[a.length + b.length - 1];
+        for(int i = 0; i < a.length; ++i){
+            for(int j = 0; j < b.length; ++j){
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        return result;
+    }
+
+
+    //P(total) for dice dice of sides sides, by counting every combination of faces
+    private static double[] enumerate(int dice, int sides){
+        double[] total = new double[dice * sides + 1];
+        int combinations = (int)Math.pow(sides, dice);
+        for(int c = 0; c < combinations; ++c){
+            int sum = 0;
+            for(int d = 0, rest = c; d < dice; ++d, rest /= sides){
+                sum += rest % sides + 1;
+            }
+            total[sum] += 1.0 / combinations;
+        }
+        return total;
+    }
+
+
+    @Test
+    void fftMatchesDirectConvolution(){
+        Random random = new Random(13);
+        for(int[] lengths : new int[][]{{1, 1}, {2, 3}, {65, 65}, {100, 7}, {129, 300}, {1000, 1000}}){
+            double[] a = new double[lengths[0]];
+            double[] b = new double[lengths[1]];
+            for(int i = 0; i < a.length; ++i){
+                a[i] = random.nextDouble();
+            }
+            for(int i = 0; i < b.length; ++i){
+                b[i] = random.nextDouble();
+            }
+            double[] expected = direct(a, b);
+            assertArrayEquals(expected, DiceDistribution.convolveFft(a, b), 1e-9, lengths[0] + " x " + lengths[1]);
+            assertArrayEquals(expected, DiceDistribution.convolve(a, b), 1e-9, lengths[0] + " x " + lengths[1]);
+        }
+    }
+
+
+    @Test
+    void fftNeverGoesNegative(){
+        //5d100 is built on the FFT path, and its impossible totals (below 5) must be exactly 0
+        DiceDistribution roll = DiceDistribution.of(5, 100);
+        double sum = 0.0;
+        for(int s = 0; s < roll.total.length; ++s){
+            assertTrue(roll.total[s] >= 0.0, "P(" + s + ")");
+            sum += roll.total[s];
+        }
+        assertEquals(1.0, sum, 1e-12);
+        for(int s = 0; s < 5; ++s){
+            assertEquals(0.0, roll.total[s]);
+        }
+    }
+
+
+    @Test
+    void totalsMatchEnumeration(){
+        for(int[] roll : new int[][]{{1, 6}, {2, 4}, {2, 6}, {3, 6}, {4, 5}, {2, 20}}){
+            DiceDistribution distribution = DiceDistribution.of(roll[0], roll[1]);
+            String what = roll[0] + "d" + roll[1];
+            assertArrayEquals(enumerate(roll[0], roll[1]), distribution.total, 1e-15, what);
+            assertEquals(roll[0] * roll[1], distribution.maxTotal(), what);
+            double doubles = roll[0] < 2 ? 0.0 : Math.pow(roll[1], 1 - roll[0]);
+            assertEquals(doubles, distribution.doublesProb, 1e-15, what);
+        }
+        DiceDistribution two = DiceDistribution.of(2, 6);
+        assertEquals(6.0 / 36, two.nonDoubles(7), 1e-15);      //7 is never doubles
+        assertEquals(2.0 / 36, two.nonDoubles(4), 1e-15);      //1+3, 3+1 (2+2 is doubles)
+    }
+
+
+    @Test
+    void distributionsAreCached(){
+        assertSame(DiceDistribution.of(3, 8), DiceDistribution.of(3, 8));
+        assertThrows(IllegalArgumentException.class, () -> DiceDistribution.of(0, 6));
+        assertThrows(IllegalArgumentException.class, () -> DiceDistribution.of(2, 0));
+    }
+}
@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/* The SIMD kernel against the scalar one, and a batched solve against one solve per chain, to
+1e-12. Surefire runs with --add-modules jdk.incubator.vector, so best() is the vector kernel here;
+the fallback to scalar() is checked in a JVM started without it. */
+
+
+class MatVecKernelTest {
+
+    private static final double EPSILON = 1e-12;
+
+
+    private static double[] random(Random random, int length){
+        double[] values = new double[length];
+        for(int i = 0; i < length; ++i){
+            values[i] = random.nextDouble();
+        }
+        return values;
+    }
+
+
+    private static void assertClose(double[] expected, double[] actual, String what){
+        assertEquals(expected.length, actual.length, what);
+        for(int i = 0; i < expected.length; ++i){
+            assertEquals(expected[i], actual[i], EPSILON * Math.max(1.0, Math.abs(expected[i])), what + " [" + i + "]");
+        }
+    }
+
+
+    @Test
+    void bestIsTheVectorKernel(){
+        assertEquals("vector", MatVecKernel.best().name());
+    }
+
+
+    @Test
+    void vectorMultiplyMatchesScalar(){
+        Random random = new Random(20);
+        MatVecKernel vector = new VectorMatVec();
+        //sizes below, at and past whole vectors, up to the 120 states of the standard board
+        for(int n : new int[]{1, 3, 7, 8, 9, 16, 31, 120}){
+            double[] matrix = random(random, n * n);
+            double[] x = random(random, n);
+            double[] expected = new double[n];
+            double[] actual = new double[n];
+            MatVecKernel.scalar().multiply(matrix, x, expected, n);
+            vector.multiply(matrix, x, actual, n);
+            assertClose(expected, actual, "multiply n=" + n);
+        }
+    }
+
+
+    @Test
+    void vectorMultiplyBatchMatchesScalar(){
+        Random random = new Random(21);
+        MatVecKernel vector = new VectorMatVec();
+        for(int n : new int[]{1, 5, 120}){
+            for(int batch : new int[]{1, 3, vector.lanes(), vector.lanes() + 1, 2 * vector.lanes(), 19}){
+                double[] matrices = random(random, n * n * batch);
+                double[] x = random(random, n * batch);
+                double[] expected = new double[n * batch];
+                double[] actual = new double[n * batch];
+                MatVecKernel.scalar().multiplyBatch(matrices, x, expected, n, batch);
+                vector.multiplyBatch(matrices, x, actual, n, batch);
+                assertClose(expected, actual, "multiplyBatch n=" + n + " batch=" + batch);
+            }
+        }
+    }
+
+
+    @Test
+    void solveBatchMatchesSoloSolves(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        List<MonopolyMarkov> chains = new ArrayList<MonopolyMarkov>();
+        for(int sides = 2; sides <= 20; ++sides){
+            chains.add(new MonopolyMarkov(game.board, sides));
+        }
+        double[][] batched = MonopolyMarkov.solveBatch(chains, 1e-12, 1000000, MatVecKernel.best());
+        for(int k = 0; k < chains.size(); ++k){
+            MonopolyMarkov solo = new MonopolyMarkov(game.board, k + 2);
+            solo.setKernel(MatVecKernel.scalar());
+            assertClose(solo.solve(1e-12, 1000000), batched[k], "d" + (k + 2));
+        }
+    }
+
+
+    @Test
+    void bestFallsBackToScalar() throws IOException, InterruptedException{
+        assertEquals("scalar", probe(false, true), "without jdk.incubator.vector");
+        assertEquals("scalar", probe(true, false), "with -Dsimd=false");
+        assertEquals("vector", probe(true, true));
+    }
+
+
+    //name of MatVecKernel.best() in a fresh JVM on this test's class path
+    private static String probe(boolean vectorModule, boolean simd) throws IOException, InterruptedException{
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if(vectorModule){
+            command.add("--add-modules");
+            command.add("jdk.incubator.vector");
+        }
+        command.add("-Dsimd=" + simd);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Probe.class.getName());
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        assertEquals(0, process.waitFor(), output);
+        assertTrue(output.endsWith("scalar") || output.endsWith("vector"), output);
+        //the incubator module warns on stderr first, the name is the last line
+        return output.substring(output.lastIndexOf('\n') + 1);
+    }
+
+
+    static final class Probe {
+        public static void main(String[] args){
+            System.out.println(MatVecKernel.best().name());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+
+/* The int-indexed board: the chance card lookup tables follow their definitions on the standard
+board and on a repeated one, labels widen with the board, and driver()'s odds are the ones it has
+always printed. */
+
+
+class MonopolyBoardTest {
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    //first of squares strictly after square, lapping the board (-1 if there are none)
+    private static int nextOf(int[] squares, int square, int numOfSquares){
+        for(int step = 1; step <= numOfSquares; ++step){
+            int candidate = (square + step) % numOfSquares;
+            for(int s : squares){
+                if(s == candidate){
+                    return candidate;
+                }
+            }
+        }
+        return -1;
+    }
+
+
+    private static void assertTables(MonopolyBoard board){
+        for(int i = 0; i < board.numOfSquares; ++i){
+            assertEquals(nextOf(board.rrSquares, i, board.numOfSquares), board.nextRailroad[i], "next railroad from " + i);
+            assertEquals(nextOf(board.utSquares, i, board.numOfSquares), board.nextUtility[i], "next utility from " + i);
+            assertEquals(Math.floorMod(i - 3, board.numOfSquares), board.back3[i], "back 3 from " + i);
+            double sum = 0.0;
+            for(double p : board.landProb[i]){
+                sum += p;
+            }
+            assertEquals(1.0, sum, 1e-15, "landing on " + i);
+        }
+    }
+
+
+    @Test
+    void lookupTablesFollowTheirDefinitions(){
+        MonopolyBoard board = standard();
+        assertTables(board);
+        assertEquals(5, board.nextRailroad[36]);      //CH3 laps the board to R1
+        assertEquals(12, board.nextUtility[7]);
+        assertEquals(33, board.back3[36]);           //CH3 back to CC3
+        assertTables(board.repeat(3));
+    }
+
+
+    @Test
+    void labelsWidenWithTheBoard(){
+        MonopolyBoard board = standard();
+        assertEquals("05", board.label(5));
+        assertEquals("39", board.label(39));
+        MonopolyBoard large = board.repeat(3);
+        assertEquals(120, large.numOfSquares);
+        assertEquals("005", large.label(5));
+        assertEquals("119", large.label(119));
+    }
+
+
+    @Test
+    void driverOddsAreUnchanged(){
+        //the top squares and odds driver() prints for 4 and 6 sided dice, to the printed digits
+        double[] four = new Monopoly(4).findOdds();
+        assertArrayEquals(new int[]{10, 0, 5}, Monopoly.topSquares(four, 3));
+        assertEquals(0.074545, four[10], 5e-7);
+        assertEquals(0.033920, four[0], 5e-7);
+        assertEquals(0.032287, four[5], 5e-7);
+        assertEquals(0.0, four[30]);
+
+        double[] six = new Monopoly(6).findOdds();
+        assertArrayEquals(new int[]{10, 0, 5}, Monopoly.topSquares(six, 3));
+        assertEquals(0.063939, six[10], 5e-7);
+        assertEquals(0.034309, six[0], 5e-7);
+        assertEquals(0.009330, six[36], 5e-7);
+        assertEquals(0.0, six[30]);
+    }
+}
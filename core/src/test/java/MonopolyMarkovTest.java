@@ -0,0 +1,76 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+
+/* The markov chain solver: every state's transitions add up to 1, and the stationary odds give the
+known modal strings - 101524 for two 4 sided dice, 102400 for two 6 sided dice - on either
+kernel. */
+
+
+class MonopolyMarkovTest {
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    //labels of the 3 most likely squares, concatenated
+    private static String modal(MonopolyBoard board, double[] odds){
+        StringBuilder modal = new StringBuilder();
+        for(int square : Monopoly.topSquares(odds, 3)){
+            modal.append(board.label(square));
+        }
+        return modal.toString();
+    }
+
+
+    @Test
+    void transitionsAreStochastic(){
+        MonopolyBoard board = standard();
+        for(int dice = 1; dice <= 3; ++dice){
+            for(int sides : new int[]{2, 4, 6, 12}){
+                MonopolyMarkov chain = new MonopolyMarkov(board, dice, sides);
+                double[] out = new double[chain.states()];
+                chain.addTransitions((from, to, prob) -> out[from] += prob);
+                for(int state = 0; state < out.length; ++state){
+                    assertEquals(1.0, out[state], 1e-12, dice + "d" + sides + " from state " + state);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    void modalStrings(){
+        MonopolyBoard board = standard();
+        for(MatVecKernel kernel : new MatVecKernel[]{MatVecKernel.scalar(), MatVecKernel.best()}){
+            MonopolyMarkov four = new MonopolyMarkov(board, 4);
+            four.setKernel(kernel);
+            assertEquals("101524", modal(board, four.solve(1e-12, 1000000)), kernel.name());
+            MonopolyMarkov six = new MonopolyMarkov(board, 6);
+            six.setKernel(kernel);
+            assertEquals("102400", modal(board, six.solve(1e-12, 1000000)), kernel.name());
+        }
+    }
+
+
+    @Test
+    void oddsAreTheStationaryDistribution(){
+        //what driverMarkov() prints for 6 sided dice, to the printed digits
+        MonopolyBoard board = standard();
+        MonopolyMarkov chain = new MonopolyMarkov(board, 6);
+        double[] odds = chain.solve(1e-12, 1000000);
+        assertEquals(0.062195, odds[10], 5e-7);
+        assertEquals(0.031858, odds[24], 5e-7);
+        assertEquals(0.030961, odds[0], 5e-7);
+        assertEquals(0.0, odds[30]);
+        double sum = 0.0;
+        for(double p : odds){
+            sum += p;
+        }
+        assertEquals(1.0, sum, 1e-12);
+    }
+}
@@ -0,0 +1,50 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+
+/* The Monte Carlo simulator against the markov chain it approximates: with a few million rolls
+every square's odds are within 1e-3 of the stationary distribution. Runs are reproducible for a
+given seed and thread count, and every roll is counted once. */
+
+
+class MonopolySimulatorTest {
+
+    private static final long TURNS = 4000000;
+
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    @Test
+    void oddsApproachTheMarkovChain(){
+        MonopolyBoard board = standard();
+        for(int sides : new int[]{4, 6}){
+            double[] expected = new MonopolyMarkov(board, sides).solve(1e-12, 1000000);
+            double[] simulated = new MonopolySimulator(board, sides).run(TURNS, 2, 84).odds();
+            assertArrayEquals(expected, simulated, 1e-3, sides + " sided dice");
+            //only jail is clear of sampling noise in the ranking (6 sided: 3rd and 4th are close)
+            assertEquals(10, Monopoly.topSquares(simulated, 1)[0], sides + " sided dice");
+        }
+    }
+
+
+    @Test
+    void runsAreReproducibleAndCountEveryRoll(){
+        MonopolySimulator simulator = new MonopolySimulator(standard(), 6);
+        MonopolySimulator.Result first = simulator.run(100000, 3, 7);
+        MonopolySimulator.Result again = simulator.run(100000, 3, 7);
+        assertArrayEquals(first.visits, again.visits);
+        long total = 0;
+        for(long v : first.visits){
+            total += v;
+        }
+        assertEquals(100000, total);
+        assertEquals(0, first.visits[30], "nobody ends a roll on Go to Jail");
+    }
+}
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/* The parallel sweep: every (layout, dice size) pair comes back exactly once, with the odds a
+single chain solved on its own gives, whether solved one by one or in batches. Shuffled layouts
+keep their special squares and are the same for the same seed. */
+
+
+class MonopolySweepTest {
+
+    private static final int MIN_SIDES = 2;
+    private static final int MAX_SIDES = 9;
+
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    @Test
+    void sweepMatchesSoloSolves(){
+        List<MonopolyBoard> layouts = MonopolySweep.layouts(standard(), 3, 12);
+        for(boolean batched : new boolean[]{false, true}){
+            MonopolySweep.Result[][] results = new MonopolySweep.Result[layouts.size()][MAX_SIDES + 1];
+            new MonopolySweep(3, 2, 1e-12, batched).run(layouts, MIN_SIDES, MAX_SIDES, result -> {
+                assertNull(results[result.layout][result.diceSides], "reported twice");
+                results[result.layout][result.diceSides] = result;
+            });
+            for(int layout = 0; layout < layouts.size(); ++layout){
+                for(int sides = MIN_SIDES; sides <= MAX_SIDES; ++sides){
+                    String what = "layout " + layout + ", d" + sides + (batched ? ", batched" : "");
+                    MonopolySweep.Result result = results[layout][sides];
+                    double[] solo = new MonopolyMarkov(layouts.get(layout), sides).solve(1e-12, 1000000);
+                    assertArrayEquals(solo, result.odds, 1e-9, what);
+                    int[] top = Monopoly.topSquares(solo, 3);
+                    MonopolyBoard board = layouts.get(layout);
+                    assertEquals(board.label(top[0]) + board.label(top[1]) + board.label(top[2]), result.modalString, what);
+                }
+            }
+            assertEquals("101524", results[0][4].modalString);
+            assertEquals("102400", results[0][6].modalString);
+        }
+    }
+
+
+    @Test
+    void shuffledLayoutsKeepTheirSquares(){
+        MonopolyBoard base = standard();
+        List<MonopolyBoard> layouts = MonopolySweep.layouts(base, 5, 99);
+        List<MonopolyBoard> again = MonopolySweep.layouts(base, 5, 99);
+        assertSame(base, layouts.get(0));
+        for(int i = 1; i < layouts.size(); ++i){
+            MonopolyBoard board = layouts.get(i);
+            assertArrayEquals(again.get(i).chanceSquares, board.chanceSquares, "same seed, same layout");
+            assertArrayEquals(again.get(i).rrSquares, board.rrSquares, "same seed, same layout");
+            assertEquals(base.go, board.go);
+            assertEquals(base.jail, board.jail);
+            assertEquals(base.g2J, board.g2J);
+            int[] special = new int[0];
+            for(int[] squares : new int[][]{board.chanceSquares, board.chestSquares, board.rrSquares, board.utSquares}){
+                special = concat(special, squares);
+            }
+            assertEquals(12, special.length);
+            assertEquals(12, Arrays.stream(special).distinct().count(), "never two on one square");
+            for(int square : special){
+                assertFalse(square == base.go || square == base.jail || square == base.g2J);
+            }
+        }
+    }
+
+
+    private static int[] concat(int[] a, int[] b){
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
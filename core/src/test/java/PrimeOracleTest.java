@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+/* The Montgomery Miller-Rabin in PrimeOracle: exact against a sieve where one can be built, and on
+the numbers that fool weaker tests (Carmichael numbers, strong pseudoprimes to several bases) and
+the largest primes a long can hold beyond it. */
+
+
+class PrimeOracleTest {
+
+    @Test
+    void millerRabinMatchesSieve(){
+        int limit = 2000000;
+        PrimeSieve sieve = new PrimeSieve(limit);
+        for(int n = -5; n <= limit; ++n){
+            assertEquals(n >= 0 && sieve.isPrime(n), PrimeOracle.millerRabin(n), "millerRabin(" + n + ")");
+        }
+    }
+
+
+    @Test
+    void millerRabinRejectsPseudoprimes(){
+        long[] composites = {
+            561, 1105, 1729, 2465, 2821, 6601, 8911, 41041, 825265,     //carmichael numbers
+            //smallest strong pseudoprimes to the first 1, 2, ... 9 prime bases (341550071728321 is both 7 and 8)
+            2047, 1373653, 25326001, 3215031751L, 2152302898747L, 3474749660383L,
+            341550071728321L, 3825123056546413051L,
+            4611686014132420609L,                                       //(2^31 - 1)^2
+            9223372036854775807L,                                       //2^63 - 1 = 7^2 * 73 * 127 * ...
+        };
+        for(long n : composites){
+            assertFalse(PrimeOracle.millerRabin(n), n + " is composite");
+        }
+    }
+
+
+    @Test
+    void millerRabinAcceptsLargePrimes(){
+        long[] primes = {
+            2147483647L,                //2^31 - 1
+            4294967291L,                //largest prime below 2^32
+            1000000000000000003L,
+            2305843009213693951L,       //2^61 - 1
+            9223372036854775783L,       //largest prime below 2^63
+        };
+        for(long p : primes){
+            assertTrue(PrimeOracle.millerRabin(p), p + " is prime");
+        }
+    }
+
+
+    @Test
+    void oracleFallsBackPastTheTable(){
+        PrimeOracle oracle = new PrimeOracle(new WheelSieve(1000));
+        PrimeOracle noTable = new PrimeOracle();
+        PrimeSieve sieve = new PrimeSieve(100000);
+        for(int n = 0; n <= 100000; ++n){
+            assertEquals(sieve.isPrime(n), oracle.isPrime(n), "isPrime(" + n + ")");
+            assertEquals(sieve.isPrime(n), noTable.isPrime(n), "isPrime(" + n + ") without a table");
+        }
+        assertFalse(oracle.isPrime(-7));
+        assertFalse(noTable.isPrime(-7));
+        assertTrue(oracle.test(2305843009213693951L));
+    }
+}
@@ -0,0 +1,67 @@
+/* Plain odd-only sieve of eratosthenes, kept as the oracle the wheel tables are tested against.
+
+Bit i of the table stands for the odd number 2i+1, and a set bit marks a composite. No segments,
+no threads: it is meant to be obviously right, not fast. */
+
+
+class PrimeSieve{
+
+    private final long[] bits;          //packed odd-only table, set bit = composite
+    private final int limit;            //largest value covered by the table
+
+
+    //sieves every value up to (and including) limit
+    PrimeSieve(int limit){
+        this.limit = Math.max(limit, 2);
+        this.bits = new long[(int)(((long)this.limit + 1) / 2 + 63 >>> 6)];
+        this.bits[0] |= 1L;     //1 is not prime
+        for(long p = 3; p * p <= this.limit; p += 2){
+            if(isPrime((int)p)){
+                for(long j = p * p; j <= this.limit; j += 2 * p){
+                    int index = (int)(j >>> 1);
+                    this.bits[index >>> 6] |= 1L << index;
+                }
+            }
+        }
+    }
+
+
+    boolean isPrime(int n){
+        if(n > this.limit){
+            throw new IllegalArgumentException(n + " is past the sieved limit " + this.limit);
+        }
+        if(n < 2){
+            return false;
+        }
+        if((n & 1) == 0){
+            return n == 2;
+        }
+        int index = n >>> 1;
+        return (this.bits[index >>> 6] & (1L << index)) == 0;
+    }
+
+
+    //number of primes up to limit (2 included)
+    int count(){
+        int count = 0;
+        for(int n = 0; n <= this.limit; ++n){
+            if(isPrime(n)){
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    //all primes up to limit, in increasing order
+    int[] primes(){
+        int[] result = new int[count()];
+        int next = 0;
+        for(int n = 0; n <= this.limit; ++n){
+            if(isPrime(n)){
+                result[next++] = n;
+            }
+        }
+        return result;
+    }
+}
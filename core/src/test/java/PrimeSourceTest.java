@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+
+/* PrimeSource hands out exactly the primes a sieve lists, in order, in both modes, across segment
+edges and limit extensions - and close() stops a background producer even while it is blocked on
+a full queue. */
+
+
+class PrimeSourceTest {
+
+    //a little over three segments of 2^18 odd numbers
+    private static final int LIMIT = 3 * 2 * (1 << 18) + 1001;
+    private static final int[] PRIMES = new PrimeSieve(LIMIT).primes();
+
+
+    private static long[] expected(int limit){
+        int count = 0;
+        while(count < PRIMES.length && PRIMES[count] <= limit){
+            count++;
+        }
+        return Arrays.stream(PRIMES, 0, count).asLongStream().toArray();
+    }
+
+
+    private static long[] drain(PrimeSource source){
+        long[] primes = new long[PRIMES.length];
+        int count = 0;
+        while(source.hasNext()){
+            primes[count++] = source.nextLong();
+        }
+        return Arrays.copyOf(primes, count);
+    }
+
+
+    //the background producer threads running right now
+    private static Set<Thread> producers(){
+        Set<Thread> threads = new HashSet<Thread>();
+        for(Thread thread : Thread.getAllStackTraces().keySet()){
+            if(thread.getName().equals("prime-source")){
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+
+
+    @Test
+    void bothModesListEveryPrime(){
+        for(boolean background : new boolean[]{false, true}){
+            try(PrimeSource source = new PrimeSource(LIMIT, background)){
+                assertArrayEquals(expected(LIMIT), drain(source), "background " + background);
+                assertThrows(NoSuchElementException.class, source::nextLong);
+            }
+        }
+        for(int limit : new int[]{0, 1, 2, 3, 10, 2 * (1 << 18), 2 * (1 << 18) + 1}){
+            try(PrimeSource source = new PrimeSource(limit, false)){
+                assertArrayEquals(expected(limit), drain(source), "limit " + limit);
+            }
+        }
+    }
+
+
+    @Test
+    void extendingTheLimitCarriesOn(){
+        for(boolean background : new boolean[]{false, true}){
+            try(PrimeSource source = new PrimeSource(1000, background)){
+                long[] first = drain(source);
+                assertArrayEquals(expected(1000), first);
+                source.extendTo(500);       //never lowers it
+                assertEquals(1000, source.getLimit());
+                source.extendTo(LIMIT);
+                long[] rest = drain(source);
+                long[] all = Arrays.copyOf(first, first.length + rest.length);
+                System.arraycopy(rest, 0, all, first.length, rest.length);
+                assertArrayEquals(expected(LIMIT), all, "background " + background);
+            }
+        }
+    }
+
+
+    @Test
+    void streamSumsTheSamePrimes(){
+        try(PrimeSource source = new PrimeSource(LIMIT, true)){
+            assertEquals(Arrays.stream(expected(LIMIT)).sum(), source.stream().sum());
+        }
+    }
+
+
+    @Test
+    void closeStopsARunningProducer() throws InterruptedException{
+        Set<Thread> before = producers();
+        PrimeSource source = new PrimeSource(Long.MAX_VALUE / 2, true);
+        assertEquals(2, source.nextLong());
+        //the producer sieves ahead until the queue is full, then blocks on it
+        Set<Thread> started = producers();
+        started.removeAll(before);
+        assertEquals(1, started.size());
+        Thread producer = started.iterator().next();
+        Thread.sleep(200);
+        assertTrue(producer.isAlive());
+
+        source.close();
+        producer.join(5000);
+        assertFalse(producer.isAlive(), "producer still running after close()");
+    }
+}
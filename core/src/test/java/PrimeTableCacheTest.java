@@ -0,0 +1,113 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/* PrimeTableCache: a good file is used as it is, a grown limit only extends it, and anything that
+fails the header or CRC32 check is rebuilt instead of trusted. The file is readable by others,
+as the program's other output files are. */
+
+
+class PrimeTableCacheTest {
+
+    private static final long LIMIT = 2L * 30 * WheelSieve.SEGMENT_BYTES + 77;
+
+    @TempDir
+    Path dir;
+
+
+    //a cache file in the current format, holding table (with a correct header and checksum)
+    private static byte[] file(long limit, byte[] table, int version){
+        ByteBuffer file = ByteBuffer.allocate(32 + table.length).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(table);
+        file.putInt(0x50524D53).putInt(version).putLong(limit).putLong(table.length).putLong(crc.getValue()).put(table);
+        return file.array();
+    }
+
+
+    //the limit in a cache file's header
+    private static long cachedLimit(Path path) throws IOException{
+        return ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN).getLong(8);
+    }
+
+
+    @Test
+    void firstLoadSievesAndStores() throws IOException{
+        Path path = this.dir.resolve("primes.cache");
+        WheelSieve sieve = new PrimeTableCache(path).load(LIMIT, 1);
+        byte[] expected = new WheelSieve(LIMIT).bytes();
+        assertArrayEquals(expected, sieve.bytes());
+        assertArrayEquals(file(LIMIT, expected, 2), Files.readAllBytes(path));
+    }
+
+
+    @Test
+    void goodFileIsUsedWithoutSieving() throws IOException{
+        //a table no sieve would produce, but with a valid checksum: it must come back as it is
+        Path path = this.dir.resolve("primes.cache");
+        byte[] table = new WheelSieve(LIMIT).bytes().clone();
+        table[10] ^= 0x10;
+        Files.write(path, file(LIMIT, table, 2));
+        assertArrayEquals(table, new PrimeTableCache(path).load(LIMIT, 1).bytes());
+        //and a smaller limit is cut out of it
+        byte[] smaller = new WheelSieve(1000).bytes().clone();
+        smaller[10] ^= 0x10;
+        assertArrayEquals(smaller, new PrimeTableCache(path).load(1000, 1).bytes());
+        assertEquals(LIMIT, cachedLimit(path));
+    }
+
+
+    @Test
+    void smallerFileIsExtended() throws IOException{
+        Path path = this.dir.resolve("primes.cache");
+        new PrimeTableCache(path).load(1000, 1);
+        assertEquals(1000, cachedLimit(path));
+        WheelSieve sieve = new PrimeTableCache(path).load(LIMIT, 2);
+        assertArrayEquals(new WheelSieve(LIMIT).bytes(), sieve.bytes());
+        assertEquals(LIMIT, cachedLimit(path));
+    }
+
+
+    @Test
+    void corruptFileIsRebuilt() throws IOException{
+        Path path = this.dir.resolve("primes.cache");
+        byte[] expected = new WheelSieve(LIMIT).bytes();
+        byte[] good = file(LIMIT, expected, 2);
+
+        byte[] flipped = good.clone();
+        flipped[32 + 5000] ^= 0x01;                     //table no longer matches its CRC32
+        byte[] truncated = Arrays.copyOf(good, good.length - 1);
+        byte[] oldVersion = file(LIMIT, expected, 1);   //odd-only PrimeSieve words
+        byte[] badLimit = good.clone();
+        ByteBuffer.wrap(badLimit).order(ByteOrder.LITTLE_ENDIAN).putLong(8, LIMIT + 30);
+
+        for(byte[] bad : new byte[][]{flipped, truncated, oldVersion, badLimit, new byte[7]}){
+            Files.write(path, bad);
+            assertArrayEquals(expected, new PrimeTableCache(path).load(LIMIT, 1).bytes());
+            assertArrayEquals(good, Files.readAllBytes(path), "cache file was not rebuilt");
+        }
+        assertTrue(Files.isRegularFile(path));
+    }
+
+
+    @Test
+    void storedFileIsNotOwnerOnly() throws IOException{
+        Path path = this.dir.resolve("primes.cache");
+        assumeTrue(path.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        new PrimeTableCache(path).load(1000, 1);
+        assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+    }
+}
@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntToLongFunction;
+import org.junit.jupiter.api.Test;
+
+
+/* The result sinks: every format carries the same answer, CSV and binary list exactly count terms
+(none for a search that found nothing), and the text sink keeps the listing it always printed. */
+
+
+class ResultSinkTest {
+
+    //the primes, by index, as ConsecutiveSumSearch.prime() hands them out
+    private static final IntToLongFunction PRIMES = i -> new long[]{2, 3, 5, 7, 11, 13, 17}[i];
+
+
+    private static byte[] write(ResultSink sink, ByteArrayOutputStream bytes, long prime, int count, int start, int end){
+        sink.primeSum(prime, count, start, end, PRIMES);
+        sink.close();
+        return bytes.toByteArray();
+    }
+
+
+    private static String text(byte[] bytes){
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    @Test
+    void textKeepsTheLegacyListing(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String found = text(write(new TextResultSink(new ResultWriter(bytes, true, false)), bytes, 41, 6, 0, 5));
+        assertEquals("Answer is: 41\nWhich equals the sum of the following [6] consecutive primes: \n"
+                + " 2,  3,  5,  7,  11,  13\n", found);
+
+        bytes = new ByteArrayOutputStream();
+        String none = text(write(new TextResultSink(new ResultWriter(bytes, true, false)), bytes, 1, 0, 0, 0));
+        assertEquals("Answer is: 1\nWhich equals the sum of the following [0] consecutive primes: \n 2\n", none);
+    }
+
+
+    @Test
+    void csvListsCountTerms(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String found = text(write(new CsvResultSink(new ResultWriter(bytes, true, false)), bytes, 23, 3, 1, 3));
+        assertEquals("sum,terms,first,last\n23,3,1,3\nterm\n3\n5\n7\n", found);
+
+        bytes = new ByteArrayOutputStream();
+        String none = text(write(new CsvResultSink(new ResultWriter(bytes, true, false)), bytes, 1, 0, 0, 0));
+        assertEquals("sum,terms,first,last\n1,0,0,0\nterm\n", none);
+    }
+
+
+    @Test
+    void binaryRecordHoldsCountTerms() throws IOException{
+        for(int count : new int[]{0, 1, 6}){
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int end = Math.max(count - 1, 0);
+            byte[] record = write(new BinaryResultSink(new ResultWriter(bytes, true, false)), bytes, 99, count, 0, end);
+            assertEquals(1 + 8 + 3 * 4 + 8 * count, record.length, "record length for " + count + " terms");
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            assertEquals(BinaryResultSink.PRIME_SUM, in.readByte());
+            assertEquals(99, in.readLong());
+            assertEquals(count, in.readInt());
+            assertEquals(0, in.readInt());
+            assertEquals(end, in.readInt());
+            for(int i = 0; i < count; ++i){
+                assertEquals(PRIMES.applyAsLong(i), in.readLong());
+            }
+        }
+    }
+
+
+    @Test
+    void binarySweepRecordRoundTrips() throws IOException{
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryResultSink sink = new BinaryResultSink(new ResultWriter(bytes, true, false));
+        sink.sweep(new MonopolySweep.Result(3, 6, new double[0], "GOJAILCC1"));
+        sink.close();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(BinaryResultSink.SWEEP, in.readByte());
+        assertEquals(3, in.readInt());
+        assertEquals(6, in.readInt());
+        byte[] modal = new byte[in.readInt()];
+        in.readFully(modal);
+        assertEquals("GOJAILCC1", text(modal));
+        assertEquals(-1, in.read());
+    }
+}
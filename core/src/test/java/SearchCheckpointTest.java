@@ -0,0 +1,209 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+/* SearchCheckpoint replay: a finished journal answers without searching, a saved search position
+is resumed from (and ignored if it is over other primes), a torn or corrupt record cuts the
+journal off there, and a journal for another limit or format version is started over. The answer
+must come out right every time, and the journal stays a few records long. */
+
+
+class SearchCheckpointTest {
+
+    private static final long LIMIT = 10000000;
+
+    //the journal layout, as documented in SearchCheckpoint
+    private static final int MAGIC = 0x5052434B;
+    private static final int SEARCH = 2;
+    private static final int RESULT = 3;
+
+    @TempDir
+    Path dir;
+
+    private final WheelSieve sieve = new WheelSieve(LIMIT);
+    private final ConsecutiveSum expected = search(new PrimeOracle(this.sieve)).find(LIMIT);
+
+
+    private ConsecutiveSumSearch search(LongPredicate isPrime){
+        return new ConsecutiveSumSearch(this.sieve.iterator(), isPrime);
+    }
+
+
+    //a search whose primality checks are counted in calls[0]
+    private ConsecutiveSumSearch counted(long[] calls){
+        PrimeOracle oracle = new PrimeOracle(this.sieve);
+        return search(n -> {
+            calls[0]++;
+            return oracle.test(n);
+        });
+    }
+
+
+    //every position a search from scratch reports, as {length, start, prefix sum}
+    private List<long[]> positions(long[] calls){
+        List<long[]> positions = new ArrayList<long[]>();
+        counted(calls).find(LIMIT, 0, 0, (length, start, prefixSum) -> positions.add(new long[]{length, start, prefixSum}));
+        return positions;
+    }
+
+
+    private static ByteBuffer header(int version, long limit){
+        return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(version).putLong(limit).flip();
+    }
+
+
+    //type, length, payload, CRC32 of the payload
+    private static ByteBuffer record(int type, ByteBuffer payload){
+        payload.flip();
+        CRC32 check = new CRC32();
+        check.update(payload.array(), 0, payload.limit());
+        ByteBuffer record = ByteBuffer.allocate(12 + payload.limit()).order(ByteOrder.LITTLE_ENDIAN);
+        return record.putInt(type).putInt(payload.limit()).put(payload).putInt((int)check.getValue()).flip();
+    }
+
+
+    private static ByteBuffer searchRecord(int length, int start, long prefixSum){
+        return record(SEARCH, ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putInt(length).putInt(start).putLong(prefixSum));
+    }
+
+
+    private static ByteBuffer searchRecord(long[] position){
+        return searchRecord((int)position[0], (int)position[1], position[2]);
+    }
+
+
+    private static ByteBuffer resultRecord(ConsecutiveSum sum){
+        ByteBuffer payload = ByteBuffer.allocate(20).order(ByteOrder.LITTLE_ENDIAN);
+        return record(RESULT, payload.putLong(sum.getPrime()).putInt(sum.getCount()).putInt(sum.getStartIndex()).putInt(sum.getEndIndex()));
+    }
+
+
+    private static void write(Path path, ByteBuffer... parts) throws IOException{
+        int size = 0;
+        for(ByteBuffer part : parts){
+            size += part.remaining();
+        }
+        ByteBuffer all = ByteBuffer.allocate(size);
+        for(ByteBuffer part : parts){
+            all.put(part);
+        }
+        Files.write(path, all.array());
+    }
+
+
+    //cuts the last bytes off a file, as a kill in the middle of a write would
+    private static void truncate(Path path, long bytes) throws IOException{
+        try(RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")){
+            file.setLength(file.length() - bytes);
+        }
+    }
+
+
+    private void assertAnswer(ConsecutiveSum found){
+        assertEquals(this.expected.getPrime(), found.getPrime());
+        assertEquals(this.expected.getCount(), found.getCount());
+        assertEquals(this.expected.getStartIndex(), found.getStartIndex());
+        assertEquals(this.expected.getEndIndex(), found.getEndIndex());
+    }
+
+
+    @Test
+    void finishedJournalIsReplayed() throws IOException{
+        Path path = this.dir.resolve("run.ck");
+        assertAnswer(new SearchCheckpoint(path).search(search(new PrimeOracle(this.sieve)), LIMIT));
+        long size = Files.size(path);
+        assertTrue(size < 100, "only the search is journaled: " + size + " bytes");
+
+        //the result comes back without a single primality check
+        SearchCheckpoint second = new SearchCheckpoint(path);
+        assertAnswer(second.search(search(n -> {
+            throw new AssertionError("searched again");
+        }), LIMIT));
+        assertEquals(size, Files.size(path), "nothing may be journaled twice");
+
+        second.delete();
+        assertFalse(Files.exists(path));
+    }
+
+
+    @Test
+    void savedPositionIsResumed() throws IOException{
+        long[] full = new long[1];
+        List<long[]> positions = positions(full);
+        long[] last = positions.get(positions.size() - 1);
+        assertTrue(positions.size() > 1, "the search reports where it is");
+
+        //resuming from the last reported position skips every check made before it
+        Path path = this.dir.resolve("run.ck");
+        write(path, header(3, LIMIT), searchRecord(last));
+        long[] resumed = new long[1];
+        assertAnswer(new SearchCheckpoint(path).search(counted(resumed), LIMIT));
+        assertTrue(resumed[0] < full[0], resumed[0] + " checks after resuming, " + full[0] + " from scratch");
+
+        //a position whose prefix sum doesn't match these primes is not trusted
+        write(path, header(3, LIMIT), searchRecord((int)last[0], (int)last[1], last[2] + 2));
+        long[] scratch = new long[1];
+        assertAnswer(new SearchCheckpoint(path).search(counted(scratch), LIMIT));
+        assertEquals(full[0], scratch[0]);
+    }
+
+
+    @Test
+    void tornTailIsCutOff() throws IOException{
+        Path path = this.dir.resolve("run.ck");
+        write(path, header(3, LIMIT), searchRecord(positions(new long[1]).get(0)), resultRecord(new ConsecutiveSum(7, 3, 0, 2)));
+        long size = Files.size(path);
+        truncate(path, 5);
+
+        //the torn (and wrong) result is dropped, the search runs from the saved position, and its
+        //own result takes the place of the torn one
+        assertAnswer(new SearchCheckpoint(path).search(search(new PrimeOracle(this.sieve)), LIMIT));
+        assertEquals(size, Files.size(path));
+        assertAnswer(new SearchCheckpoint(path).search(search(n -> {
+            throw new AssertionError("searched again");
+        }), LIMIT));
+    }
+
+
+    @Test
+    void corruptRecordEndsTheJournal() throws IOException{
+        Path path = this.dir.resolve("run.ck");
+        write(path, header(3, LIMIT), searchRecord(positions(new long[1]).get(0)), resultRecord(new ConsecutiveSum(7, 3, 0, 2)));
+        //one byte inside the result's payload: its CRC32 no longer matches, so it is cut off
+        byte[] journal = Files.readAllBytes(path);
+        journal[16 + 28 + 8 + 3] ^= 0x40;
+        Files.write(path, journal);
+
+        assertAnswer(new SearchCheckpoint(path).search(search(new PrimeOracle(this.sieve)), LIMIT));
+        assertEquals(16 + 28 + 32, Files.size(path));
+    }
+
+
+    @Test
+    void otherLimitOrVersionStartsOver() throws IOException{
+        Path path = this.dir.resolve("run.ck");
+        ConsecutiveSum wrong = new ConsecutiveSum(7, 3, 0, 2);
+        for(ByteBuffer header : new ByteBuffer[]{header(3, LIMIT - 1), header(2, LIMIT), header(MAGIC, MAGIC)}){
+            write(path, header, resultRecord(wrong));
+            assertAnswer(new SearchCheckpoint(path).search(search(new PrimeOracle(this.sieve)), LIMIT));
+            ByteBuffer rewritten = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(3, rewritten.getInt(4));
+            assertEquals(LIMIT, rewritten.getLong(8));
+            assertEquals(16 + 32, rewritten.capacity());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+
+/* The sparse form of the chain against the dense one: the CSR matrix holds exactly the dense
+transposed transitions, and gauss-seidel lands on the same stationary odds as power iteration. */
+
+
+class SparseMatrixTest {
+
+    private static MonopolyBoard standard(){
+        Monopoly game = new Monopoly(6);
+        game.initBoard();
+        return game.board;
+    }
+
+
+    @Test
+    void holdsTheDenseTransitions(){
+        for(MonopolyBoard board : new MonopolyBoard[]{standard(), standard().repeat(3)}){
+            MonopolyMarkov chain = new MonopolyMarkov(board, 6);
+            int s = chain.states();
+            double[] dense = new double[s * s];
+            chain.addTransitions((from, to, prob) -> dense[to * s + from] += prob);
+
+            SparseMatrix sparse = SparseMatrix.transposed(s, chain::addTransitions);
+            double[] rebuilt = new double[s * s];
+            for(int j = 0; j < s; ++j){
+                rebuilt[j * s + j] = sparse.diagonal[j];
+                for(int k = sparse.rowStart[j]; k < sparse.rowStart[j + 1]; ++k){
+                    assertNotEquals(j, sparse.cols[k], "diagonal entries are kept apart");
+                    rebuilt[j * s + sparse.cols[k]] += sparse.values[k];
+                }
+            }
+            assertArrayEquals(dense, rebuilt, 1e-15);
+            assertEquals(sparse.rowStart[s], sparse.entries());
+        }
+    }
+
+
+    @Test
+    void gaussSeidelMatchesPowerIteration(){
+        MonopolyBoard board = standard();
+        for(int sides = 2; sides <= 12; ++sides){
+            double[] dense = new MonopolyMarkov(board, sides).solve(1e-13, 1000000);
+            double[] sparse = new MonopolyMarkov(board, sides).solveSparse(1e-13, 100000, 1.0);
+            assertArrayEquals(dense, sparse, 1e-10, "d" + sides);
+        }
+        MonopolyBoard large = board.repeat(5);
+        double[] dense = new MonopolyMarkov(large, 6).solve(1e-13, 1000000);
+        double[] sparse = new MonopolyMarkov(large, 6).solveSparse(1e-13, 100000, 1.0);
+        assertArrayEquals(dense, sparse, 1e-10, "200 squares");
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import org.junit.jupiter.api.Test;
+
+
+/* WheelSieve against the odd-only PrimeSieve it replaced behind ConsecutivePrimes: both must agree
+on every value, whichever way the wheel table was built. */
+
+
+class WheelSieveTest {
+
+    //every value up to limit reads the same from both sieves, and so do the counts
+    private static void assertSameAsOddOnly(WheelSieve wheel, int limit){
+        PrimeSieve odd = new PrimeSieve(limit);
+        for(int n = 0; n <= limit; ++n){
+            assertEquals(odd.isPrime(n), wheel.isPrime(n), "isPrime(" + n + ")");
+        }
+        assertEquals(odd.count(), wheel.count());
+    }
+
+
+    @Test
+    void smallLimitsMatchOddOnlySieve(){
+        //every residue of the last table byte, and the limits below 7 where only 2, 3 and 5 count
+        for(int limit = 0; limit <= 200; ++limit){
+            WheelSieve wheel = new WheelSieve(limit);
+            assertSameAsOddOnly(wheel, (int)wheel.getLimit());
+        }
+    }
+
+
+    @Test
+    void severalSegmentsMatchOddOnlySieve(){
+        //a few segments (983040 values each), with a partly filled last segment and last byte
+        int limit = 3 * 30 * WheelSieve.SEGMENT_BYTES + 17;
+        assertSameAsOddOnly(new WheelSieve(limit), limit);
+    }
+
+
+    @Test
+    void iteratorListsThePrimesInOrder(){
+        int limit = 1000003;
+        int[] expected = new PrimeSieve(limit).primes();
+        PrimitiveIterator.OfLong primes = new WheelSieve(limit).iterator();
+        for(int p : expected){
+            assertEquals(p, primes.nextLong());
+        }
+        assertFalse(primes.hasNext());
+    }
+
+
+    @Test
+    void parallelSieveIsIdentical(){
+        long limit = 5L * 30 * WheelSieve.SEGMENT_BYTES + 1;
+        assertArrayEquals(new WheelSieve(limit).bytes(), new WheelSieve(limit, 4).bytes());
+    }
+
+
+    @Test
+    void knownTableIsReusedAndExtended(){
+        long limit = 4L * 30 * WheelSieve.SEGMENT_BYTES + 101;
+        byte[] expected = new WheelSieve(limit).bytes();
+        //known limits inside a byte, at a segment boundary, and past the new limit
+        long[] knownLimits = {2, 30L * WheelSieve.SEGMENT_BYTES + 13, 2L * 30 * WheelSieve.SEGMENT_BYTES - 1, limit, 2 * limit};
+        for(long knownLimit : knownLimits){
+            byte[] known = new WheelSieve(knownLimit).bytes();
+            WheelSieve sieve = new WheelSieve(limit, 2, ByteBuffer.wrap(known), knownLimit);
+            assertArrayEquals(expected, sieve.bytes(), "known limit " + knownLimit);
+        }
+    }
+
+
+    @Test
+    void baseHelpersMatchOddOnlySieve(){
+        //the base primes PrimeSource sieves with, and the square root bound both sieves use
+        for(int n : new int[]{0, 2, 3, 4, 9, 100, 65536}){
+            int[] all = new PrimeSieve(n).primes();
+            int[] odd = all.length > 0 && all[0] == 2 ? Arrays.copyOfRange(all, 1, all.length) : all;
+            assertArrayEquals(odd, WheelSieve.smallOddPrimes(n), "smallOddPrimes(" + n + ")");
+        }
+        long[] values = {0, 1, 2, 3, 4, 15, 16, 17, 999999999999L, 1000000000000L, WheelSieve.MAX_LIMIT};
+        for(long n : values){
+            long root = WheelSieve.isqrt(n);
+            assertTrue(root * root <= n && (root + 1) * (root + 1) > n, "isqrt(" + n + ")");
+        }
+    }
+
+
+    @Test
+    void limitsAreChecked(){
+        WheelSieve sieve = new WheelSieve(100);
+        assertThrows(IllegalArgumentException.class, () -> sieve.isPrime(101));
+        assertThrows(IllegalArgumentException.class, () -> new WheelSieve(WheelSieve.MAX_LIMIT + 1));
+        assertThrows(IllegalArgumentException.class, () -> new WheelSieve(100, 0));
+    }
+}
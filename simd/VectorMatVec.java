@@ -0,0 +1,86 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/* MatVecKernel on the Vector API (jdk.incubator.vector), at the widest double species the CPU has
+(4 lanes with AVX2, 8 with AVX-512).
+
+This file lives apart from the projects because it needs the incubator module to compile and to
+run: plain "javac *.java" never sees it, and MatVecKernel.best() only loads it by name, falling
+back to the scalar kernel if it is missing or can't be linked. To use it outside Maven:
+
+    javac *.java
+    javac --add-modules jdk.incubator.vector -cp . -d . simd/VectorMatVec.java
+    java --add-modules jdk.incubator.vector Monopoly markov
+
+multiply() keeps one vector accumulator per row and reduces it at the end of the row;
+multiplyBatch() puts one chain in each lane, so it needs no reduction at all. Rows (and chains)
+that don't fill a whole vector are finished with scalar code - for chains that is a strided walk
+down the interleaved matrix, which is why MonopolyMarkov.solveBatch() pads batches to a multiple
+of lanes() instead (masked loads would avoid it too, but aren't fast on every JDK/CPU). */
+
+
+final class VectorMatVec implements MatVecKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+
+    @Override
+    public void multiply(double[] matrix, double[] x, double[] y, int n){
+        int upper = SPECIES.loopBound(n);
+        for(int i = 0; i < n; ++i){
+            int row = i * n;
+            DoubleVector acc = DoubleVector.zero(SPECIES);
+            int j = 0;
+            for(; j < upper; j += LANES){
+                DoubleVector m = DoubleVector.fromArray(SPECIES, matrix, row + j);
+                acc = m.fma(DoubleVector.fromArray(SPECIES, x, j), acc);
+            }
+            double sum = acc.reduceLanes(VectorOperators.ADD);
+            for(; j < n; ++j){
+                sum += matrix[row + j] * x[j];
+            }
+            y[i] = sum;
+        }
+    }
+
+
+    @Override
+    public void multiplyBatch(double[] matrices, double[] x, double[] y, int n, int batch){
+        int upper = SPECIES.loopBound(batch);
+        for(int i = 0; i < n; ++i){
+            int row = i * n * batch;
+            int out = i * batch;
+            int k = 0;
+            for(; k < upper; k += LANES){
+                DoubleVector acc = DoubleVector.zero(SPECIES);
+                for(int j = 0; j < n; ++j){
+                    DoubleVector m = DoubleVector.fromArray(SPECIES, matrices, row + j * batch + k);
+                    acc = m.fma(DoubleVector.fromArray(SPECIES, x, j * batch + k), acc);
+                }
+                acc.intoArray(y, out + k);
+            }
+            for(; k < batch; ++k){
+                double sum = 0.0;
+                for(int j = 0; j < n; ++j){
+                    sum += matrices[row + j * batch + k] * x[j * batch + k];
+                }
+                y[out + k] = sum;
+            }
+        }
+    }
+
+
+    @Override
+    public int lanes(){
+        return LANES;
+    }
+
+
+    @Override
+    public String name(){
+        return "vector";
+    }
+}